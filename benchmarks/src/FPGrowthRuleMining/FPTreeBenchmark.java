@@ -0,0 +1,88 @@
+//Benchmarks of the steps of FP growth: ranking the items, constructing the FP tree, projecting conditional FP trees and mining them
+//The tree storage is a parameter so that the FP tree implementations can be compared
+
+package FPGrowthRuleMining;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FPTreeBenchmark {
+	//Parameters
+	@Param({"node", "heap"})
+	public String treeStorage;
+
+	//Variables
+	private FPTree tree;
+
+	//Methods
+	@Setup(Level.Trial)
+	public void setup(QuestDataset dataset) {
+		this.tree = dataset.newTree(this.treeStorage);
+	}
+
+	/**
+	 * Counts and ranks the items, which gives the frequent pattern, and orders every transaction by it.
+	 */
+	@Benchmark
+	public void rankItems(QuestDataset dataset, Blackhole blackhole) {
+		ItemDictionary dictionary = QuestDataset.rankItems(dataset.transactions, dataset.minSupport);
+		for(List<String> transaction : dataset.transactions) {
+			blackhole.consume(dictionary.encode(transaction));
+		}
+	}
+
+	/**
+	 * Constructs a tree of FPTreeNode objects by adding the items of every transaction as children.
+	 */
+	@Benchmark
+	public FPTreeNode addChild(QuestDataset dataset) {
+		FPTreeNode root = new FPTreeNode();
+		for(int[] orderedItemset : dataset.orderedItemsets) {
+			FPTreeNode node = root;
+			for(int item : orderedItemset) {
+				node = node.addChild(item, 1);
+			}
+		}
+		return root;
+	}
+
+	@Benchmark
+	public FPTree insert(QuestDataset dataset) {
+		return dataset.newTree(this.treeStorage);
+	}
+
+	/**
+	 * Projects the conditional FP tree of every frequent item, which is the tree of its conditional pattern base.
+	 */
+	@Benchmark
+	public void project(QuestDataset dataset, Blackhole blackhole) {
+		for(int item=0; item<dataset.dictionary.size(); item++) {
+			blackhole.consume(this.tree.project(item, dataset.minSupport));
+		}
+	}
+
+	@Benchmark
+	public List<Itemset> constructFreqItemsets(QuestDataset dataset) {
+		return QuestDataset.mine(this.tree, dataset.dictionary, dataset.minSupport);
+	}
+}
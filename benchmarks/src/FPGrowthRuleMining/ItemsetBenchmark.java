@@ -0,0 +1,82 @@
+//Benchmarks of the Itemset operations used while mining and generating rules
+//Each invocation runs the operation once for every transaction of the dataset
+
+package FPGrowthRuleMining;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ItemsetBenchmark {
+	//Variables
+	//Itemset of each transaction, a copy of it and its first half
+	private Itemset[] itemsets;
+	private Itemset[] copies;
+	private Itemset[] subsets;
+	//Item that is looked up in each itemset, in the middle of it
+	private int[] items;
+
+	//Methods
+	@Setup(Level.Trial)
+	public void setup(QuestDataset dataset) {
+		int n = dataset.orderedItemsets.size();
+		this.itemsets = new Itemset[n];
+		this.copies = new Itemset[n];
+		this.subsets = new Itemset[n];
+		this.items = new int[n];
+		for(int i=0; i<n; i++) {
+			int[] orderedItemset = dataset.orderedItemsets.get(i);
+			this.itemsets[i] = new Itemset(orderedItemset, 1);
+			//The copy constructor shares the items, so the copy gets its own array to compare
+			this.copies[i] = new Itemset(orderedItemset.clone(), 1);
+			this.subsets[i] = new Itemset(Arrays.copyOf(orderedItemset, orderedItemset.length/2), 1);
+			this.items[i] = orderedItemset.length == 0 ? 0 : orderedItemset[orderedItemset.length/2];
+		}
+	}
+
+	@Benchmark
+	public void contains(Blackhole blackhole) {
+		for(int i=0; i<this.itemsets.length; i++) {
+			blackhole.consume(this.itemsets[i].contains(this.items[i]));
+		}
+	}
+
+	@Benchmark
+	public void isSubset(Blackhole blackhole) {
+		for(int i=0; i<this.itemsets.length; i++) {
+			blackhole.consume(this.subsets[i].isSubset(this.itemsets[i]));
+		}
+	}
+
+	@Benchmark
+	public void equals(Blackhole blackhole) {
+		for(int i=0; i<this.itemsets.length; i++) {
+			blackhole.consume(this.itemsets[i].equals(this.copies[i]));
+		}
+	}
+
+	@Benchmark
+	public void toString(Blackhole blackhole) {
+		for(int i=0; i<this.itemsets.length; i++) {
+			blackhole.consume(this.itemsets[i].toString());
+		}
+	}
+}
@@ -0,0 +1,101 @@
+//Benchmarks of reading transactions from the dataset and itemsets back from their text representation
+
+package FPGrowthRuleMining;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.hadoop.io.Text;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+	//Variables
+	//Lines of the dataset as the mappers get them
+	private Text[] lines;
+	private TransactionTokenizer tokenizer;
+	//Itemset of each transaction as text: [0, 1, 2]
+	private String[] itemsets;
+	//Frequent itemsets of each base item as text: [0, 1]:5;[0, 2]:4;
+	private String[] freqItemsetLines;
+
+	//Methods
+	@Setup(Level.Trial)
+	public void setup(QuestDataset dataset) {
+		this.lines = new Text[dataset.lines.size()];
+		for(int i=0; i<this.lines.length; i++) {
+			this.lines[i] = new Text(dataset.lines.get(i));
+		}
+		this.tokenizer = new TransactionTokenizer();
+
+		List<String> itemsets = new ArrayList<String>();
+		for(int[] orderedItemset : dataset.orderedItemsets) {
+			if(orderedItemset.length > 0) {
+				itemsets.add(new Itemset(orderedItemset, 1).toString());
+			}
+		}
+		this.itemsets = itemsets.toArray(new String[itemsets.size()]);
+
+		//The mined itemsets are grouped by their last item
+		List<String> lines = new ArrayList<String>();
+		StringBuilder line = new StringBuilder();
+		for(int i=0; i<dataset.freqItemsets.size(); i++) {
+			Itemset itemset = dataset.freqItemsets.get(i);
+			line.append(itemset.toString()).append(':').append(itemset.getSupport()).append(';');
+			if(i+1 == dataset.freqItemsets.size() || dataset.freqItemsets.get(i+1).getLastItem() != itemset.getLastItem()) {
+				lines.add(line.toString());
+				line.setLength(0);
+			}
+		}
+		this.freqItemsetLines = lines.toArray(new String[lines.size()]);
+	}
+
+	//Scanner over the decoded line and a dictionary lookup per item string
+	@Benchmark
+	public void readTransaction(QuestDataset dataset, Blackhole blackhole) {
+		for(Text line : this.lines) {
+			blackhole.consume(dataset.dictionary.encode(ItemsetUtils.readTransaction(line.toString(), 2)));
+		}
+	}
+
+	//Items looked up by their bytes in the line
+	@Benchmark
+	public void tokenizeTransaction(QuestDataset dataset, Blackhole blackhole) {
+		for(Text line : this.lines) {
+			this.tokenizer.reset(line, 2);
+			blackhole.consume(this.tokenizer.encode(dataset.dictionary));
+		}
+	}
+
+	@Benchmark
+	public void readItemset(Blackhole blackhole) {
+		for(String itemset : this.itemsets) {
+			blackhole.consume(ItemsetUtils.readItemset(itemset));
+		}
+	}
+
+	@Benchmark
+	public void readFreqItemsets(Blackhole blackhole) {
+		for(String line : this.freqItemsetLines) {
+			blackhole.consume(ItemsetUtils.readFreqItemsets(line));
+		}
+	}
+}
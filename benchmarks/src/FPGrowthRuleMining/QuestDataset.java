@@ -0,0 +1,151 @@
+//Synthetic dataset shared by the benchmarks, generated once per trial from the benchmark parameters
+//The transactions are kept as lines, as ranked item ids and as their FP tree, with the frequent itemsets mined from it
+
+package FPGrowthRuleMining;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class QuestDataset {
+	//Number of potentially frequent patterns and their average length, as in the T10.I4 datasets
+	private static final int NUM_PATTERNS = 2000;
+	private static final double AVG_PATTERN_LENGTH = 4;
+	private static final long SEED = 1;
+
+	//Parameters
+	@Param({"10", "20"})
+	public int transactionLength;
+
+	@Param({"1000", "10000"})
+	public int numItems;
+
+	@Param({"0", "1"})
+	public double skew;
+
+	@Param({"10000"})
+	public int numTransactions;
+
+	@Param({"0.01"})
+	public double support;
+
+	//Variables
+	List<String> lines;
+	List<List<String>> transactions;
+	ItemDictionary dictionary;
+	List<int[]> orderedItemsets;
+	FPTree tree;
+	int minSupport;
+	List<Itemset> freqItemsets;
+	SupportIndex supportIndex;
+
+	//Methods
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		QuestGenerator generator = new QuestGenerator(this.numItems, NUM_PATTERNS, AVG_PATTERN_LENGTH, this.transactionLength, this.skew, SEED);
+		this.lines = new ArrayList<String>();
+		this.transactions = new ArrayList<List<String>>();
+		for(int t=0; t<this.numTransactions; t++) {
+			String line = generator.nextLine();
+			this.lines.add(line);
+			this.transactions.add(ItemsetUtils.readTransaction(line, 2));
+		}
+		this.minSupport = Math.max((int)(this.support * this.numTransactions), 1);
+		this.dictionary = rankItems(this.transactions, this.minSupport);
+
+		this.orderedItemsets = new ArrayList<int[]>();
+		for(List<String> transaction : this.transactions) {
+			this.orderedItemsets.add(this.dictionary.encode(transaction));
+		}
+		this.tree = newTree("node");
+
+		this.freqItemsets = mine(this.tree, this.dictionary, this.minSupport);
+		this.supportIndex = indexSupports(this.dictionary, this.freqItemsets);
+	}
+
+	/**
+	 * Counts the items of the transactions and ranks the frequent ones, which is the frequent pattern of the FP tree.
+	 * @param transactions Items of each transaction.
+	 * @param minSupport Minimum support level.
+	 * @return Dictionary of the frequent items.
+	 */
+	static ItemDictionary rankItems(List<List<String>> transactions, int minSupport) {
+		Map<String,int[]> counts = new HashMap<String,int[]>();
+		for(List<String> transaction : transactions) {
+			for(String item : transaction) {
+				int[] itemCount = counts.get(item);
+				if(itemCount == null) {
+					itemCount = new int[1];
+					counts.put(item, itemCount);
+				}
+				itemCount[0]++;
+			}
+		}
+		List<String> names = new ArrayList<String>();
+		List<Integer> supports = new ArrayList<Integer>();
+		for(Map.Entry<String,int[]> entry : counts.entrySet()) {
+			if(entry.getValue()[0] >= minSupport) {
+				names.add(entry.getKey());
+				supports.add(entry.getValue()[0]);
+			}
+		}
+		return ItemDictionary.rank(names, supports);
+	}
+
+	/**
+	 * Constructs the FP tree of the transactions.
+	 * @param storage How the tree is stored, see ItemsetUtils.newFPTree.
+	 * @return FP tree of all transactions.
+	 */
+	FPTree newTree(String storage) {
+		FPTree tree = ItemsetUtils.newFPTree(storage);
+		for(int[] orderedItemset : this.orderedItemsets) {
+			tree.insert(orderedItemset, orderedItemset.length, 1);
+		}
+		return tree;
+	}
+
+	/**
+	 * Mines the frequent itemsets of every base item of an FP tree.
+	 * @param tree FP tree of the transactions.
+	 * @param dictionary Dictionary of the frequent items.
+	 * @param minSupport Minimum support level.
+	 * @return Frequent itemsets with at least two items.
+	 */
+	static List<Itemset> mine(FPTree tree, ItemDictionary dictionary, int minSupport) {
+		List<Itemset> freqItemsets = new ArrayList<Itemset>();
+		for(int baseItem=0; baseItem<dictionary.size(); baseItem++) {
+			FPTree condTree = tree.project(baseItem, minSupport);
+			if(!condTree.isEmpty()) {
+				Itemset base = new Itemset(new int[] {baseItem}, tree.getSupport(baseItem));
+				ItemsetUtils.constructFreqItemsets(freqItemsets, condTree, base, minSupport);
+			}
+		}
+		return freqItemsets;
+	}
+
+	private static SupportIndex indexSupports(ItemDictionary dictionary, List<Itemset> freqItemsets) throws IOException {
+		long numItems = dictionary.size();
+		for(Itemset itemset : freqItemsets) {
+			numItems += itemset.size();
+		}
+		SupportIndex supportIndex = SupportIndex.create(dictionary.size() + freqItemsets.size(), numItems, null);
+		for(int item=0; item<dictionary.size(); item++) {
+			supportIndex.add(new Itemset(new int[] {item}, dictionary.getSupport(item)));
+		}
+		for(Itemset itemset : freqItemsets) {
+			supportIndex.add(itemset);
+		}
+		return supportIndex;
+	}
+}
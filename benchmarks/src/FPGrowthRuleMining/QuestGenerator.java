@@ -0,0 +1,185 @@
+//Seeded generator of synthetic transactions in the style of the IBM Quest generator (Agrawal and Srikant, 1994)
+//Transactions are made of potentially frequent patterns that share items with each other and are corrupted when used,
+//and lines are written as "<customer> <transaction> <items...>", the two leading fields being skipped with an offset of 2
+
+package FPGrowthRuleMining;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class QuestGenerator {
+	//Variables
+	private Random random;
+	private double avgTransactionLength;
+	//Cumulative probability of each item, from the most to the least popular
+	private double[] itemDistribution;
+	//Patterns with their cumulative weights and corruption levels
+	private int[][] patterns;
+	private double[] patternDistribution;
+	private double[] corruption;
+	//Pattern that did not fit in the last transaction and starts the next one
+	private int[] carriedPattern;
+	private long numTransactions;
+
+	//Constructors
+	/**
+	 * Creates a generator.
+	 * @param numItems Number of distinct items.
+	 * @param numPatterns Number of potentially frequent patterns.
+	 * @param avgPatternLength Average number of items of a pattern.
+	 * @param avgTransactionLength Average number of items of a transaction.
+	 * @param skew Zipf exponent of the item popularity, 0 for items picked uniformly like the original generator.
+	 * @param seed Seed of the random numbers, the same seed gives the same transactions.
+	 */
+	public QuestGenerator(int numItems, int numPatterns, double avgPatternLength, double avgTransactionLength, double skew, long seed) {
+		this.random = new Random(seed);
+		this.avgTransactionLength = avgTransactionLength;
+
+		this.itemDistribution = new double[numItems];
+		double total = 0;
+		for(int i=0; i<numItems; i++) {
+			total += 1 / Math.pow(i+1, skew);
+			this.itemDistribution[i] = total;
+		}
+		for(int i=0; i<numItems; i++) {
+			this.itemDistribution[i] /= total;
+		}
+
+		//Each pattern takes an exponentially distributed fraction of its items from the pattern before it
+		this.patterns = new int[numPatterns][];
+		this.patternDistribution = new double[numPatterns];
+		this.corruption = new double[numPatterns];
+		double totalWeight = 0;
+		for(int p=0; p<numPatterns; p++) {
+			int length = Math.min(Math.max(poisson(avgPatternLength), 1), numItems);
+			int[] pattern = new int[length];
+			int size = 0;
+			if(p > 0) {
+				int[] previous = this.patterns[p-1];
+				int shared = Math.min((int)(exponential(0.5) * length), Math.min(length, previous.length));
+				for(int i=0; i<shared; i++) {
+					pattern[size++] = previous[this.random.nextInt(previous.length)];
+				}
+			}
+			while(size < length) {
+				pattern[size++] = nextItem();
+			}
+			this.patterns[p] = unique(pattern, size);
+			totalWeight += exponential(1);
+			this.patternDistribution[p] = totalWeight;
+			this.corruption[p] = Math.min(Math.max(0.5 + 0.1*this.random.nextGaussian(), 0), 1);
+		}
+		for(int p=0; p<numPatterns; p++) {
+			this.patternDistribution[p] /= totalWeight;
+		}
+	}
+
+	//Methods
+	/**
+	 * Generates the next transaction. Patterns are picked by weight and corrupted by dropping items,
+	 * and a pattern that does not fit is added anyway half of the time, otherwise it starts the next transaction.
+	 * @return Items of the transaction sorted by id.
+	 */
+	public int[] nextTransaction() {
+		int length = Math.max(poisson(this.avgTransactionLength), 1);
+		int[] transaction = new int[0];
+		while(transaction.length < length) {
+			int[] pattern = this.carriedPattern;
+			this.carriedPattern = null;
+			if(pattern == null) {
+				int p = pick(this.patternDistribution);
+				pattern = corrupt(this.patterns[p], this.corruption[p]);
+			}
+			if(transaction.length + pattern.length > length && transaction.length > 0 && this.random.nextBoolean()) {
+				this.carriedPattern = pattern;
+				break;
+			}
+			int[] merged = Arrays.copyOf(transaction, transaction.length + pattern.length);
+			System.arraycopy(pattern, 0, merged, transaction.length, pattern.length);
+			transaction = unique(merged, merged.length);
+		}
+		this.numTransactions++;
+		return transaction;
+	}
+
+	/**
+	 * Generates the next transaction as a line of the dataset.
+	 * @return Line with the customer and transaction ids followed by the items.
+	 */
+	public String nextLine() {
+		int[] transaction = nextTransaction();
+		StringBuilder line = new StringBuilder();
+		line.append(this.numTransactions).append(' ').append(this.numTransactions);
+		for(int item : transaction) {
+			line.append(' ').append(item);
+		}
+		return line.toString();
+	}
+
+	private int[] corrupt(int[] pattern, double level) {
+		int[] items = pattern.clone();
+		int size = items.length;
+		while(size > 0 && this.random.nextDouble() < level) {
+			items[this.random.nextInt(size)] = items[--size];
+		}
+		return unique(items, size);
+	}
+
+	private int nextItem() {
+		return pick(this.itemDistribution);
+	}
+
+	private int pick(double[] distribution) {
+		int index = Arrays.binarySearch(distribution, this.random.nextDouble());
+		index = index < 0 ? -index-1 : index;
+		return Math.min(index, distribution.length-1);
+	}
+
+	private int poisson(double mean) {
+		double limit = Math.exp(-mean);
+		double product = this.random.nextDouble();
+		int n = 0;
+		while(product > limit) {
+			product *= this.random.nextDouble();
+			n++;
+		}
+		return n;
+	}
+
+	private double exponential(double mean) {
+		return -mean * Math.log(1 - this.random.nextDouble());
+	}
+
+	private static int[] unique(int[] items, int size) {
+		Arrays.sort(items, 0, size);
+		int unique = 0;
+		for(int i=0; i<size; i++) {
+			if(unique == 0 || items[unique-1] != items[i]) {
+				items[unique++] = items[i];
+			}
+		}
+		return Arrays.copyOf(items, unique);
+	}
+
+	public static void main(String[] args) throws Exception {
+		//Arguements
+		File output = new File(args[0]);
+		long numTransactions = Long.parseLong(args[1]);
+		double avgTransactionLength = Double.parseDouble(args[2]);
+		double avgPatternLength = Double.parseDouble(args[3]);
+		int numPatterns = Integer.parseInt(args[4]);
+		int numItems = Integer.parseInt(args[5]);
+		double skew = args.length > 6 ? Double.parseDouble(args[6]) : 0;
+		long seed = args.length > 7 ? Long.parseLong(args[7]) : 1;
+
+		QuestGenerator generator = new QuestGenerator(numItems, numPatterns, avgPatternLength, avgTransactionLength, skew, seed);
+		PrintWriter out = new PrintWriter(output, "UTF-8");
+		for(long t=0; t<numTransactions; t++) {
+			out.print(generator.nextLine()+"\n");
+		}
+		out.close();
+	}
+}
@@ -0,0 +1,130 @@
+//Benchmark of the association rules generation of all frequent itemsets of the dataset
+//and of sorting the rules as the shuffle of the rule generation does, as text keys or as AssociationRuleWritable keys
+
+package FPGrowthRuleMining;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+import java.io.IOException;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RulesBenchmark {
+	//Parameters
+	@Param({"0.5"})
+	public double confidence;
+
+	//Variables
+	//Serialized keys of the rules of the dataset
+	private byte[][] ruleTexts;
+	private byte[][] ruleKeys;
+
+	//Methods
+	@Setup(Level.Trial)
+	public void setup(QuestDataset dataset) throws IOException {
+		List<AssociationRule> rules = genAssocRules(dataset);
+		this.ruleTexts = new byte[rules.size()][];
+		this.ruleKeys = new byte[rules.size()][];
+		Text text = new Text();
+		AssociationRuleWritable key = new AssociationRuleWritable();
+		for(int i=0; i<rules.size(); i++) {
+			text.set(rules.get(i).toString(dataset.dictionary));
+			this.ruleTexts[i] = serialize(text);
+			key.set(rules.get(i));
+			this.ruleKeys[i] = serialize(key);
+			checkRoundTrip(rules.get(i));
+		}
+		//Supports that are not known are -1
+		checkRoundTrip(new AssociationRule(new Itemset(new int[] {0, 1}, -1), new Itemset(new int[] {2, 3}, -1), 0));
+	}
+
+	/**
+	 * Checks that a rule reads back from its key, so the sorted keys are the rules.
+	 * @param rule Rule to check.
+	 * @throws IOException
+	 */
+	private static void checkRoundTrip(AssociationRule rule) throws IOException {
+		AssociationRuleWritable key = new AssociationRuleWritable();
+		key.set(rule);
+		byte[] bytes = serialize(key);
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(bytes, bytes.length);
+		AssociationRuleWritable read = new AssociationRuleWritable();
+		read.readFields(in);
+		AssociationRule readRule = read.get();
+		if(in.getPosition() != bytes.length || read.compareTo(key) != 0 || readRule.getLeft().getSupport() != rule.getLeft().getSupport()
+				|| readRule.getRight().getSupport() != rule.getRight().getSupport()) {
+			throw new IllegalStateException("Rule key does not read back: "+rule);
+		}
+	}
+
+	private static byte[] serialize(Writable writable) throws IOException {
+		DataOutputBuffer out = new DataOutputBuffer();
+		writable.write(out);
+		return Arrays.copyOf(out.getData(), out.getLength());
+	}
+
+	/**
+	 * Sorts serialized keys with the raw comparator of their type, like the sort of a map task's output.
+	 * @param keys Serialized keys, which are not changed.
+	 * @param type Type of the keys.
+	 * @return Sorted copy of the keys.
+	 */
+	private static byte[][] sort(byte[][] keys, Class<? extends WritableComparable> type) {
+		final WritableComparator comparator = WritableComparator.get(type);
+		byte[][] sorted = keys.clone();
+		Arrays.sort(sorted, new Comparator<byte[]>() {
+			public int compare(byte[] a, byte[] b) {
+				return comparator.compare(a, 0, a.length, b, 0, b.length);
+			}
+		});
+		return sorted;
+	}
+
+	@Benchmark
+	public byte[][] sortRuleTexts() {
+		return sort(this.ruleTexts, Text.class);
+	}
+
+	@Benchmark
+	public byte[][] sortRuleKeys() {
+		return sort(this.ruleKeys, AssociationRuleWritable.class);
+	}
+
+	@Benchmark
+	public List<AssociationRule> genAssocRules(QuestDataset dataset) {
+		List<AssociationRule> rules = new ArrayList<AssociationRule>();
+		for(Itemset itemset : dataset.freqItemsets) {
+			ItemsetUtils.genAssocRules(rules, dataset.supportIndex, itemset, this.confidence);
+		}
+		return rules;
+	}
+}
@@ -0,0 +1,308 @@
+//End-to-end benchmark of the hadoop jobs in local mode over a grid of dataset sizes, densities, supports and confidences
+//Each job of each run is recorded with its wall time, counters, output size and the peak heap while it ran,
+//and the results are written as CSV and JSON so that runs can be compared
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.GenericOptionsParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ScalingBenchmark {
+	//Dataset parameters that are not part of the grid, as in the T10.I4 datasets
+	private static final int NUM_PATTERNS = 2000;
+	private static final double AVG_PATTERN_LENGTH = 4;
+	//Time between samples of the used heap
+	private static final long SAMPLE_MILLIS = 20;
+	//Columns of the results
+	private static final String[] COLUMNS = {
+		"transactions", "avgLength", "numItems", "supportRatio", "support", "confidence", "job",
+		"wallMillis", "mapInputRecords", "mapOutputRecords", "mapOutputBytes", "shuffleBytes",
+		"reduceInputRecords", "reduceOutputRecords", "outputBytes", "peakHeapBytes"
+	};
+
+	//Variables
+	private File workDir;
+	private int numItems;
+	private long seed;
+	private List<Map<String,Object>> results;
+
+	//Constructors
+	/**
+	 * Creates a benchmark.
+	 * @param workDir Local directory for the datasets and the outputs of the jobs.
+	 * @param numItems Number of distinct items of the datasets.
+	 * @param seed Seed of the datasets.
+	 */
+	public ScalingBenchmark(File workDir, int numItems, long seed) {
+		this.workDir = workDir;
+		this.numItems = numItems;
+		this.seed = seed;
+		this.results = new ArrayList<Map<String,Object>>();
+	}
+
+	//Methods
+	/**
+	 * Generates a dataset unless it was generated before.
+	 * @param numTransactions Number of transactions.
+	 * @param avgLength Average number of items of a transaction.
+	 * @return Directory of the dataset.
+	 * @throws IOException
+	 */
+	private File generate(long numTransactions, double avgLength) throws IOException {
+		File dir = new File(this.workDir, "data-"+numTransactions+"-"+avgLength);
+		File file = new File(dir, "transactions.txt");
+		if(!file.exists()) {
+			dir.mkdirs();
+			QuestGenerator generator = new QuestGenerator(this.numItems, NUM_PATTERNS, AVG_PATTERN_LENGTH, avgLength, 0, this.seed);
+			File tmp = new File(dir, ".transactions.txt");
+			PrintWriter out = new PrintWriter(tmp, "UTF-8");
+			for(long t=0; t<numTransactions; t++) {
+				out.print(generator.nextLine()+"\n");
+			}
+			out.close();
+			tmp.renameTo(file);
+		}
+		return dir;
+	}
+
+	/**
+	 * Runs the jobs on one dataset with one support and confidence and records a result for each job and one for the whole run.
+	 * @param numTransactions Number of transactions.
+	 * @param avgLength Average number of items of a transaction.
+	 * @param supportRatio Minimum support as a fraction of the transactions.
+	 * @param confidence Minimum confidence level.
+	 * @param options Options of the jobs, as given with -D.
+	 * @throws Exception
+	 */
+	public void run(long numTransactions, double avgLength, double supportRatio, String confidence, Configuration options) throws Exception {
+		File input = generate(numTransactions, avgLength);
+		int support = Math.max((int)Math.ceil(supportRatio * numTransactions), 1);
+		String outputDir = new File(this.workDir, "out").getAbsolutePath() + "/run";
+
+		Configuration conf = new Configuration(options);
+		conf.set("mapreduce.framework.name", "local");
+		conf.set("fs.defaultFS", "file:///");
+		FileSystem fs = FileSystem.getLocal(conf);
+		fs.delete(new Path(outputDir).getParent(), true);
+
+		HeapSampler sampler = new HeapSampler();
+		sampler.start();
+		long start = System.currentTimeMillis();
+		List<PipelineStage> stages = FPGrowthMain.run(conf, input.getAbsolutePath(), outputDir, support, confidence, 2);
+		long end = System.currentTimeMillis();
+		sampler.interrupt();
+		sampler.join();
+
+		long totalOutput = 0;
+		for(PipelineStage stage : stages) {
+			Map<String,Object> result = newResult(numTransactions, avgLength, supportRatio, support, confidence, stage.getName());
+			result.put("wallMillis", stage.getWallMillis());
+			this.results.add(result);
+			//Stages of the driver have no counters
+			Job job = stage.getJob();
+			if(job != null) {
+				Counters counters = job.getCounters();
+				long outputBytes = fs.getContentSummary(FileOutputFormat.getOutputPath(job)).getLength();
+				totalOutput += outputBytes;
+				result.put("mapInputRecords", counters.findCounter(TaskCounter.MAP_INPUT_RECORDS).getValue());
+				result.put("mapOutputRecords", counters.findCounter(TaskCounter.MAP_OUTPUT_RECORDS).getValue());
+				result.put("mapOutputBytes", counters.findCounter(TaskCounter.MAP_OUTPUT_BYTES).getValue());
+				result.put("shuffleBytes", counters.findCounter(TaskCounter.REDUCE_SHUFFLE_BYTES).getValue());
+				result.put("reduceInputRecords", counters.findCounter(TaskCounter.REDUCE_INPUT_RECORDS).getValue());
+				result.put("reduceOutputRecords", counters.findCounter(TaskCounter.REDUCE_OUTPUT_RECORDS).getValue());
+				result.put("outputBytes", outputBytes);
+			}
+			result.put("peakHeapBytes", sampler.getPeak(stage.getStartTime(), stage.getEndTime()));
+		}
+
+		//The whole run includes the driver's work between the jobs
+		Map<String,Object> total = newResult(numTransactions, avgLength, supportRatio, support, confidence, "Total");
+		total.put("wallMillis", end - start);
+		total.put("outputBytes", totalOutput);
+		total.put("peakHeapBytes", sampler.getPeak(start, end));
+		this.results.add(total);
+		fs.delete(new Path(outputDir).getParent(), true);
+	}
+
+	private Map<String,Object> newResult(long numTransactions, double avgLength, double supportRatio, int support, String confidence, String job) {
+		Map<String,Object> result = new LinkedHashMap<String,Object>();
+		result.put("transactions", numTransactions);
+		result.put("avgLength", avgLength);
+		result.put("numItems", this.numItems);
+		result.put("supportRatio", supportRatio);
+		result.put("support", support);
+		result.put("confidence", Double.parseDouble(confidence));
+		result.put("job", job);
+		return result;
+	}
+
+	/**
+	 * Writes the results as CSV with a header line, empty fields are values that a result does not have.
+	 * @param file File to write to.
+	 * @throws IOException
+	 */
+	public void writeCsv(File file) throws IOException {
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		StringBuilder line = new StringBuilder();
+		for(String column : COLUMNS) {
+			line.append(line.length() == 0 ? "" : ",").append(column);
+		}
+		out.print(line+"\n");
+		for(Map<String,Object> result : this.results) {
+			line.setLength(0);
+			for(int i=0; i<COLUMNS.length; i++) {
+				Object value = result.get(COLUMNS[i]);
+				line.append(i == 0 ? "" : ",").append(value == null ? "" : value);
+			}
+			out.print(line+"\n");
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes the results as a JSON array with one object per result.
+	 * @param file File to write to.
+	 * @throws IOException
+	 */
+	public void writeJson(File file) throws IOException {
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		out.print("[\n");
+		for(int r=0; r<this.results.size(); r++) {
+			StringBuilder object = new StringBuilder("  {");
+			boolean first = true;
+			for(Map.Entry<String,Object> entry : this.results.get(r).entrySet()) {
+				object.append(first ? "" : ", ").append('"').append(entry.getKey()).append("\": ");
+				if(entry.getValue() instanceof String) {
+					object.append('"').append(((String)entry.getValue()).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+				}
+				else {
+					object.append(entry.getValue());
+				}
+				first = false;
+			}
+			object.append(r+1 < this.results.size() ? "},\n" : "}\n");
+			out.print(object);
+		}
+		out.print("]\n");
+		out.close();
+	}
+
+	/**
+	 * Thread that samples the used heap of the JVM. In local mode the tasks run in this JVM,
+	 * so the peak while a job ran is the peak of its tasks and the driver.
+	 */
+	private static class HeapSampler extends Thread {
+		private long[] times = new long[1024];
+		private long[] used = new long[1024];
+		private int numSamples;
+
+		HeapSampler() {
+			setDaemon(true);
+		}
+
+		public void run() {
+			Runtime runtime = Runtime.getRuntime();
+			while(true) {
+				sample(runtime);
+				try {
+					Thread.sleep(SAMPLE_MILLIS);
+				}
+				catch(InterruptedException e) {
+					sample(runtime);
+					return;
+				}
+			}
+		}
+
+		private void sample(Runtime runtime) {
+			if(this.numSamples == this.times.length) {
+				this.times = Arrays.copyOf(this.times, this.numSamples*2);
+				this.used = Arrays.copyOf(this.used, this.numSamples*2);
+			}
+			this.times[this.numSamples] = System.currentTimeMillis();
+			this.used[this.numSamples] = runtime.totalMemory() - runtime.freeMemory();
+			this.numSamples++;
+		}
+
+		/**
+		 * Returns the largest used heap sampled in a time range. A range shorter than the time between samples
+		 * has no sample of its own and gets the first sample after its start. Only call after the thread finished.
+		 * @param start Start of the range in milliseconds.
+		 * @param end End of the range in milliseconds.
+		 * @return Peak used heap in bytes.
+		 */
+		long getPeak(long start, long end) {
+			long peak = 0;
+			for(int i=0; i<this.numSamples; i++) {
+				if(this.times[i] >= start && (this.times[i] <= end || peak == 0)) {
+					peak = Math.max(peak, this.used[i]);
+				}
+			}
+			return peak;
+		}
+	}
+
+	private static long[] parseLongs(String list) {
+		String[] values = list.split(",");
+		long[] parsed = new long[values.length];
+		for(int i=0; i<values.length; i++) {
+			parsed[i] = Long.parseLong(values[i].trim());
+		}
+		return parsed;
+	}
+
+	private static double[] parseDoubles(String list) {
+		String[] values = list.split(",");
+		double[] parsed = new double[values.length];
+		for(int i=0; i<values.length; i++) {
+			parsed[i] = Double.parseDouble(values[i].trim());
+		}
+		return parsed;
+	}
+
+	public static void main(String[] args) throws Exception {
+		//Generic options (-D numGroups=n etc.) are passed on to the jobs
+		Configuration options = new Configuration();
+		args = new GenericOptionsParser(options, args).getRemainingArgs();
+
+		//Arguements
+		File workDir = new File(args[0]);
+		String results = args[1];
+		long[] transactions = parseLongs(args[2]);
+		double[] avgLengths = parseDoubles(args[3]);
+		double[] supportRatios = parseDoubles(args[4]);
+		String[] confidences = args[5].split(",");
+		int numItems = args.length > 6 ? Integer.parseInt(args[6]) : 1000;
+		long seed = args.length > 7 ? Long.parseLong(args[7]) : 1;
+
+		ScalingBenchmark benchmark = new ScalingBenchmark(workDir, numItems, seed);
+		for(long numTransactions : transactions) {
+			for(double avgLength : avgLengths) {
+				for(double supportRatio : supportRatios) {
+					for(String confidence : confidences) {
+						benchmark.run(numTransactions, avgLength, supportRatio, confidence.trim(), options);
+						//Results are written after every run, so a long grid can be looked at while it runs
+						benchmark.writeCsv(new File(results+".csv"));
+						benchmark.writeJson(new File(results+".json"));
+					}
+				}
+			}
+		}
+	}
+}
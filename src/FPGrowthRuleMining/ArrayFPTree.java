@@ -0,0 +1,364 @@
+//FP tree stored as parallel primitive arrays instead of FPTreeNode objects
+//The arrays can be kept on the heap, in direct memory or in memory mapped files
+
+package FPGrowthRuleMining;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ArrayFPTree implements FPTree {
+	/**
+	 * Where the node arrays are stored.
+	 * HEAP uses int arrays, DIRECT uses direct buffers outside the heap
+	 * and MAPPED uses memory mapped temporary files that are deleted once mapped.
+	 */
+	public enum Storage { HEAP, DIRECT, MAPPED }
+
+	//No node
+	private static final int NONE = -1;
+	//Conditional trees with fewer expected nodes than this are kept on the heap
+	private static final int MIN_OFF_HEAP_NODES = 1 << 18;
+
+	//Variables
+	private Storage storage;
+	private int numNodes;
+	private int capacity;
+	//Node arrays, node 0 is the root
+	//Children are only found through the child hash table, so no child or sibling links are kept
+	private IntBuffer items;
+	private IntBuffer counts;
+	private IntBuffer parents;
+	private IntBuffer nodeLinks;
+	//Hash table of (parent, item) to child node, 0 is an empty slot since the root is never a child
+	private IntBuffer childTable;
+	private int[] headerTable;
+	private int[] supports;
+	private int maxItem;
+
+	//Constructors
+	public ArrayFPTree(Storage storage) {
+		this(storage, 16, 64);
+	}
+
+	/**
+	 * Creates an empty tree.
+	 * @param storage Where the node arrays are stored.
+	 * @param numItems Expected number of items, the item ids are expected to be less than this.
+	 * @param capacity Expected number of nodes, including the root.
+	 */
+	public ArrayFPTree(Storage storage, int numItems, int capacity) {
+		this.storage = storage;
+		this.capacity = Math.max(capacity, 2);
+		this.items = allocate(this.capacity);
+		this.counts = allocate(this.capacity);
+		this.parents = allocate(this.capacity);
+		this.nodeLinks = allocate(this.capacity);
+		this.childTable = allocate(tableSize(this.capacity));
+		this.headerTable = new int[Math.max(numItems, 1)];
+		Arrays.fill(this.headerTable, NONE);
+		this.supports = new int[Math.max(numItems, 1)];
+		this.maxItem = -1;
+
+		//Root
+		this.items.put(0, NONE);
+		this.counts.put(0, 0);
+		this.parents.put(0, NONE);
+		this.nodeLinks.put(0, NONE);
+		this.numNodes = 1;
+	}
+
+	//Methods
+	public int getMaxItem() {
+		return this.maxItem;
+	}
+
+	public boolean isEmpty() {
+		return this.maxItem == -1;
+	}
+
+	public int getSupport(int item) {
+		if(item > this.maxItem) {
+			return 0;
+		}
+		return this.supports[item];
+	}
+
+	/**
+	 * Returns the number of nodes in the tree, including the root.
+	 * @return Number of nodes.
+	 */
+	public int getNumNodes() {
+		return this.numNodes;
+	}
+
+	public void insert(Itemset path, int count) {
+		int node = 0;
+		for(int i=0; i<path.size(); i++) {
+			node = insertChild(node, path.getItem(i), count);
+		}
+	}
+
+	public void insert(int[] path, int length, int count) {
+		int node = 0;
+		for(int i=0; i<length; i++) {
+			node = insertChild(node, path[i], count);
+		}
+	}
+
+	/**
+	 * Adds the count to the child of a node, creating the child and linking it in the header table if it is new.
+	 * @param parent Parent node.
+	 * @param item Item of the child.
+	 * @param count Count to add.
+	 * @return The child node.
+	 */
+	private int insertChild(int parent, int item, int count) {
+		if(item >= this.headerTable.length) {
+			int length = Math.max(item+1, this.headerTable.length*2);
+			int oldLength = this.headerTable.length;
+			this.headerTable = Arrays.copyOf(this.headerTable, length);
+			Arrays.fill(this.headerTable, oldLength, length, NONE);
+			this.supports = Arrays.copyOf(this.supports, length);
+		}
+		this.maxItem = Math.max(this.maxItem, item);
+		this.supports[item] += count;
+
+		int child = findChild(parent, item);
+		if(child != NONE) {
+			this.counts.put(child, this.counts.get(child)+count);
+			return child;
+		}
+
+		if(this.numNodes == this.capacity) {
+			grow(this.capacity*2);
+		}
+		child = this.numNodes++;
+		this.items.put(child, item);
+		this.counts.put(child, count);
+		this.parents.put(child, parent);
+		this.nodeLinks.put(child, this.headerTable[item]);
+		this.headerTable[item] = child;
+		putSlot(child);
+		return child;
+	}
+
+	/**
+	 * Finds the child of a node with the given item.
+	 * @param parent Parent node.
+	 * @param item Item of the child.
+	 * @return The child node, NONE if the node does not have a child with the item.
+	 */
+	private int findChild(int parent, int item) {
+		int mask = this.childTable.capacity()-1;
+		int child;
+		for(int slot = hash(parent, item) & mask; (child = this.childTable.get(slot)) != 0; slot = (slot+1) & mask) {
+			if(this.items.get(child) == item && this.parents.get(child) == parent) {
+				return child;
+			}
+		}
+		return NONE;
+	}
+
+	public FPTree project(int item, int minSupport) {
+		//Count the items in the conditional pattern base
+		int[] itemCounts = new int[item];
+		long pathLength = 0;
+		for(int node = getHeadNode(item); node != NONE; node = this.nodeLinks.get(node)) {
+			int count = this.counts.get(node);
+			for(int n = this.parents.get(node); n != 0; n = this.parents.get(n)) {
+				itemCounts[this.items.get(n)] += count;
+				pathLength++;
+			}
+		}
+
+		//The conditional tree can not have more nodes than its prefix paths or this tree
+		//Large conditional trees, such as the ones of the items of a base tree, use the storage of this tree.
+		//The small ones of deeper items are short lived and projected millions of times, so they are kept on the heap:
+		//direct buffers are only freed by the garbage collector and every mapped buffer is a new temporary file
+		int condCapacity = (int)Math.min(pathLength, this.numNodes)+1;
+		Storage condStorage = condCapacity >= MIN_OFF_HEAP_NODES ? this.storage : Storage.HEAP;
+		ArrayFPTree condTree = new ArrayFPTree(condStorage, item, condCapacity);
+		int[] path = new int[16];
+		for(int node = getHeadNode(item); node != NONE; node = this.nodeLinks.get(node)) {
+			int length = 0;
+			for(int n = this.parents.get(node); n != 0; n = this.parents.get(n)) {
+				int pathItem = this.items.get(n);
+				if(itemCounts[pathItem] >= minSupport) {
+					if(length == path.length) {
+						path = Arrays.copyOf(path, length*2);
+					}
+					path[length++] = pathItem;
+				}
+			}
+			//Prefix paths are read from the node up, so reverse them back into frequent pattern order
+			for(int i=0, j=length-1; i<j; i++, j--) {
+				int tmp = path[i];
+				path[i] = path[j];
+				path[j] = tmp;
+			}
+			condTree.insert(path, length, this.counts.get(node));
+		}
+		return condTree;
+	}
+
+	public List<Itemset> getPaths() {
+		//A path ends at a node as many times as the node's count exceeds the counts of its children
+		int[] ends = new int[this.numNodes];
+		for(int node=1; node<this.numNodes; node++) {
+			ends[node] += this.counts.get(node);
+			int parent = this.parents.get(node);
+			if(parent != 0) {
+				ends[parent] -= this.counts.get(node);
+			}
+		}
+
+		//Each path is read from its last node up and reversed into frequent pattern order
+		List<Itemset> paths = new ArrayList<Itemset>();
+		int[] path = new int[16];
+		for(int node=1; node<this.numNodes; node++) {
+			if(ends[node] > 0) {
+				int length = 0;
+				for(int n = node; n != 0; n = this.parents.get(n)) {
+					if(length == path.length) {
+						path = Arrays.copyOf(path, length*2);
+					}
+					path[length++] = this.items.get(n);
+				}
+				for(int i=0, j=length-1; i<j; i++, j--) {
+					int tmp = path[i];
+					path[i] = path[j];
+					path[j] = tmp;
+				}
+				paths.add(new Itemset(path, length, ends[node]));
+			}
+		}
+		return paths;
+	}
+
+	/**
+	 * Returns the first node of an item in the header table.
+	 * @param item Id of the item.
+	 * @return First node of the item, NONE if the item is not in the tree.
+	 */
+	private int getHeadNode(int item) {
+		if(item > this.maxItem) {
+			return NONE;
+		}
+		return this.headerTable[item];
+	}
+
+	/**
+	 * Grows the node arrays and rebuilds the child hash table.
+	 * @param newCapacity New number of nodes the arrays can hold.
+	 */
+	private void grow(int newCapacity) {
+		this.items = copy(this.items, newCapacity);
+		this.counts = copy(this.counts, newCapacity);
+		this.parents = copy(this.parents, newCapacity);
+		this.nodeLinks = copy(this.nodeLinks, newCapacity);
+		this.capacity = newCapacity;
+
+		this.childTable = allocate(tableSize(newCapacity));
+		for(int node=1; node<this.numNodes; node++) {
+			putSlot(node);
+		}
+	}
+
+	/**
+	 * Puts a node into the first free slot of the child hash table.
+	 * @param node Node to put.
+	 */
+	private void putSlot(int node) {
+		int mask = this.childTable.capacity()-1;
+		int slot = hash(this.parents.get(node), this.items.get(node)) & mask;
+		while(this.childTable.get(slot) != 0) {
+			slot = (slot+1) & mask;
+		}
+		this.childTable.put(slot, node);
+	}
+
+	/**
+	 * Hashes a parent node and a child item.
+	 * @param parent Parent node.
+	 * @param item Item of the child.
+	 * @return Hash of the pair.
+	 */
+	private static int hash(int parent, int item) {
+		int h = parent * 0x9E3779B9 + item;
+		h *= 0x85EBCA6B;
+		return h ^ (h >>> 15);
+	}
+
+	/**
+	 * Returns the number of slots of the child hash table for the given number of nodes.
+	 * The table is kept at most half full.
+	 * @param capacity Number of nodes.
+	 * @return Power of two number of slots.
+	 */
+	private static int tableSize(int capacity) {
+		return Integer.highestOneBit(capacity*2-1)*2;
+	}
+
+	/**
+	 * Copies a buffer into a larger buffer of the same storage.
+	 * @param buffer Buffer to copy.
+	 * @param newCapacity Capacity of the new buffer.
+	 * @return The new buffer.
+	 */
+	private IntBuffer copy(IntBuffer buffer, int newCapacity) {
+		IntBuffer newBuffer = allocate(newCapacity);
+		buffer.clear();
+		newBuffer.put(buffer);
+		return newBuffer;
+	}
+
+	/**
+	 * Allocates a buffer of ints in this tree's storage.
+	 * @param capacity Number of ints.
+	 * @return The buffer.
+	 */
+	private IntBuffer allocate(int capacity) {
+		switch(this.storage) {
+		case DIRECT:
+			return ByteBuffer.allocateDirect(capacity*4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		case MAPPED:
+			return map(capacity);
+		default:
+			return IntBuffer.allocate(capacity);
+		}
+	}
+
+	/**
+	 * Maps a new temporary file as a buffer of ints. The file is deleted once it is mapped,
+	 * the mapping stays valid until the buffer is garbage collected.
+	 * @param capacity Number of ints.
+	 * @return The mapped buffer.
+	 */
+	private static IntBuffer map(int capacity) {
+		try {
+			File file = File.createTempFile("fptree", ".bin");
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity*4L)
+						.order(ByteOrder.nativeOrder()).asIntBuffer();
+			}
+			finally {
+				raf.close();
+				file.delete();
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
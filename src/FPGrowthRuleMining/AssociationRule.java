@@ -16,15 +16,67 @@ public class AssociationRule {
 	}
 	
 	//Methods
+	/**
+	 * Returns the antecedent of the rule.
+	 * @return Itemset with its support count.
+	 */
+	public Itemset getLeft() {
+		return this.left;
+	}
+	
+	/**
+	 * Returns the consequent of the rule.
+	 * @return Itemset with its support count.
+	 */
+	public Itemset getRight() {
+		return this.right;
+	}
+	
 	public double getConfidence() {
 		return this.confidence;
 	}
 	
+	public int getSupport() {
+		return this.support;
+	}
+	
 	public void setSupport(int support) {
 		this.support = support;
 	}
 	
+	/**
+	 * Compares rules by the item ids of their antecedents, then of their consequents, without creating any objects.
+	 * Itemsets are compared item by item, and an itemset comes before the itemsets it is a prefix of.
+	 * This is the order of AssociationRuleWritable keys before their support counts.
+	 * @param a First rule.
+	 * @param b Second rule.
+	 * @return Negative if a comes first, positive if b comes first, 0 if the rules have the same items.
+	 */
+	public static int compareItems(AssociationRule a, AssociationRule b) {
+		int cmp = compareItems(a.left, b.left);
+		return cmp != 0 ? cmp : compareItems(a.right, b.right);
+	}
+	
+	private static int compareItems(Itemset a, Itemset b) {
+		int length = Math.min(a.size(), b.size());
+		for(int i=0; i<length; i++) {
+			if(a.getItem(i) != b.getItem(i)) {
+				return Integer.compare(a.getItem(i), b.getItem(i));
+			}
+		}
+		return Integer.compare(a.size(), b.size());
+	}
+	
 	public String toString() {
 		return left.toString()+" -> "+right.toString()+":"+this.support;
 	}
+	
+	/**
+	 * String representation of the rule with the item ids decoded.
+	 * @param dictionary Dictionary that assigned the item ids.
+	 * @return Decoded rule: [a, b] -> [c]:support
+	 */
+	public String toString(ItemDictionary dictionary) {
+		return left.toString(dictionary)+" -> "+right.toString(dictionary)+":"+this.support;
+	}
 }
@@ -0,0 +1,211 @@
+//Binary form of an association rule used as the key of the rule generation shuffle
+//Numbers are written in a variable length encoding whose bytes sort like the numbers, so keys are sorted by comparing their bytes:
+//by the item ids of the antecedent, then of the consequent, which puts the rules of the most frequent items first
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.Arrays;
+
+public class AssociationRuleWritable implements WritableComparable<AssociationRuleWritable> {
+	//Variables
+	private int[] left;
+	private int leftSize;
+	private int[] right;
+	private int rightSize;
+	private int support;
+	private int leftSupport;
+	private int rightSupport;
+
+	//Constructors
+	public AssociationRuleWritable() {
+		this.left = new int[16];
+		this.right = new int[16];
+	}
+
+	//Methods
+	/**
+	 * Sets this to an association rule.
+	 * @param rule Rule to write.
+	 */
+	public void set(AssociationRule rule) {
+		this.left = copyItems(rule.getLeft(), this.left);
+		this.leftSize = rule.getLeft().size();
+		this.right = copyItems(rule.getRight(), this.right);
+		this.rightSize = rule.getRight().size();
+		this.support = rule.getSupport();
+		this.leftSupport = rule.getLeft().getSupport();
+		this.rightSupport = rule.getRight().getSupport();
+	}
+
+	private static int[] copyItems(Itemset itemset, int[] items) {
+		if(itemset.size() > items.length) {
+			items = new int[itemset.size()];
+		}
+		for(int i=0; i<itemset.size(); i++) {
+			items[i] = itemset.getItem(i);
+		}
+		return items;
+	}
+
+	/**
+	 * Returns the rule that was read.
+	 * @return New association rule with the antecedent, consequent and support counts.
+	 */
+	public AssociationRule get() {
+		return new AssociationRule(new Itemset(this.left, this.leftSize, this.leftSupport), new Itemset(this.right, this.rightSize, this.rightSupport), this.support);
+	}
+
+	/**
+	 * Writes the ids of each itemset plus one and ends the itemset with 0, so that an itemset sorts before the itemsets it is a prefix of.
+	 * The support count of the rule follows the itemsets, then the ones of the antecedent and the consequent.
+	 * Support counts are written plus one too, since an itemset whose support is not known has a support of -1.
+	 */
+	public void write(DataOutput out) throws IOException {
+		for(int i=0; i<this.leftSize; i++) {
+			writeOrderedVInt(out, this.left[i]+1);
+		}
+		out.writeByte(0);
+		for(int i=0; i<this.rightSize; i++) {
+			writeOrderedVInt(out, this.right[i]+1);
+		}
+		out.writeByte(0);
+		writeOrderedVInt(out, this.support+1);
+		writeOrderedVInt(out, this.leftSupport+1);
+		writeOrderedVInt(out, this.rightSupport+1);
+	}
+
+	public void readFields(DataInput in) throws IOException {
+		this.leftSize = 0;
+		for(int item = readOrderedVInt(in); item != 0; item = readOrderedVInt(in)) {
+			if(this.leftSize == this.left.length) {
+				this.left = Arrays.copyOf(this.left, this.leftSize*2);
+			}
+			this.left[this.leftSize++] = item-1;
+		}
+		this.rightSize = 0;
+		for(int item = readOrderedVInt(in); item != 0; item = readOrderedVInt(in)) {
+			if(this.rightSize == this.right.length) {
+				this.right = Arrays.copyOf(this.right, this.rightSize*2);
+			}
+			this.right[this.rightSize++] = item-1;
+		}
+		this.support = readOrderedVInt(in)-1;
+		this.leftSupport = readOrderedVInt(in)-1;
+		this.rightSupport = readOrderedVInt(in)-1;
+	}
+
+	/**
+	 * Writes a non negative number in 1 to 5 bytes. The first byte tells the length, and longer encodings
+	 * start with larger first bytes, so comparing the unsigned bytes compares the numbers.
+	 * @param out Output to write to.
+	 * @param value Number to write.
+	 * @throws IOException
+	 */
+	private static void writeOrderedVInt(DataOutput out, int value) throws IOException {
+		if(value <= 240) {
+			out.writeByte(value);
+		}
+		else if(value <= 2287) {
+			out.writeByte(241 + ((value-240) >>> 8));
+			out.writeByte(value-240);
+		}
+		else if(value <= 67823) {
+			out.writeByte(249);
+			out.writeShort(value-2288);
+		}
+		else {
+			out.writeByte(250);
+			out.writeInt(value);
+		}
+	}
+
+	private static int readOrderedVInt(DataInput in) throws IOException {
+		int first = in.readUnsignedByte();
+		if(first <= 240) {
+			return first;
+		}
+		else if(first <= 248) {
+			return 240 + ((first-241) << 8) + in.readUnsignedByte();
+		}
+		else if(first == 249) {
+			return 2288 + in.readUnsignedShort();
+		}
+		return in.readInt();
+	}
+
+	/**
+	 * Compares rules in the order of their bytes: by the items of their antecedents, then of their consequents,
+	 * then by support counts. Itemsets are compared item by item, and an itemset comes before the itemsets it is a prefix of.
+	 */
+	public int compareTo(AssociationRuleWritable r) {
+		int cmp = compareItems(this.left, this.leftSize, r.left, r.leftSize);
+		if(cmp == 0) {
+			cmp = compareItems(this.right, this.rightSize, r.right, r.rightSize);
+		}
+		if(cmp == 0) {
+			cmp = Integer.compare(this.support, r.support);
+		}
+		if(cmp == 0) {
+			cmp = Integer.compare(this.leftSupport, r.leftSupport);
+		}
+		return cmp != 0 ? cmp : Integer.compare(this.rightSupport, r.rightSupport);
+	}
+
+	private static int compareItems(int[] a, int sizeA, int[] b, int sizeB) {
+		int length = Math.min(sizeA, sizeB);
+		for(int i=0; i<length; i++) {
+			if(a[i] != b[i]) {
+				return Integer.compare(a[i], b[i]);
+			}
+		}
+		return Integer.compare(sizeA, sizeB);
+	}
+
+	//The partitioner sends equal rules to the same reducer in every task
+	@Override
+	public int hashCode() {
+		int h = this.support;
+		for(int i=0; i<this.leftSize; i++) {
+			h = 31*h + this.left[i];
+		}
+		h = 31*h + this.leftSize;
+		for(int i=0; i<this.rightSize; i++) {
+			h = 31*h + this.right[i];
+		}
+		return 31*h + this.rightSize;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof AssociationRuleWritable && compareTo((AssociationRuleWritable)o) == 0;
+	}
+
+	@Override
+	public String toString() {
+		return get().toString();
+	}
+
+	/**
+	 * Compares serialized rules by their bytes, which is the order of compareTo, without reading them into rules.
+	 */
+	public static class Comparator extends WritableComparator {
+		public Comparator() {
+			super(AssociationRuleWritable.class);
+		}
+
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			return compareBytes(b1, s1, l1, b2, s2, l2);
+		}
+	}
+
+	static {
+		WritableComparator.define(AssociationRuleWritable.class, new Comparator());
+	}
+}
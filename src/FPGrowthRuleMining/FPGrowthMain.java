@@ -8,154 +8,418 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.GenericOptionsParser;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Scanner;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
 
 public class FPGrowthMain {
 	
 	/**
 	 * Mapper to find candidate-1-itemsets for the IBM dataset
 	 * Processes each line at a time.
+	 * Counts are aggregated in memory and written when the map is full or the task finishes.
+	 * Items are looked up by their bytes, so only items that are new to the map are copied.
 	 */
 	public static class ItemsMapper
 	extends Mapper<Object,Text,Text,IntWritable>
 	{
 		//Variables
-		private Text frequentItem = new Text();
-		private final IntWritable one = new IntWritable(1);
+		private Text item = new Text();
+		private IntWritable count = new IntWritable();
+		private TransactionTokenizer tokenizer = new TransactionTokenizer();
+		private Map<Text,int[]> counts;
+		private int maxCounts;
 		private int offset;
 		
 		public void setup(Context context) {
 			offset = context.getConfiguration().getInt("offset", 0);
+			maxCounts = context.getConfiguration().getInt("mapperCountCacheSize", 100000);
+			counts = new HashMap<Text,int[]>();
 		}
 		
 		//Map method
 		public void map(Object key, Text line, Context context) 
 		throws IOException, InterruptedException
 		{
-			Scanner scLine = new Scanner(line.toString());
-			//Skip data
-			for(int i=0; i<offset; i++) {
-				scLine.next();
+			//Candidate-1-itemsets
+			tokenizer.reset(line, offset);
+			while(tokenizer.next()) {
+				item.set(tokenizer.getBytes(), tokenizer.getStart(), tokenizer.getLength());
+				int[] itemCount = counts.get(item);
+				if(itemCount == null) {
+					if(counts.size() >= maxCounts) {
+						flush(context);
+					}
+					itemCount = new int[1];
+					counts.put(new Text(item), itemCount);
+				}
+				itemCount[0]++;
+			}
+		}
+		
+		protected void cleanup(Context context) 
+		throws IOException, InterruptedException
+		{
+			flush(context);
+		}
+		
+		/**
+		 * Writes the partial counts aggregated so far and clears the map.
+		 * @param context Context to write to.
+		 */
+		private void flush(Context context) 
+		throws IOException, InterruptedException
+		{
+			for(Map.Entry<Text,int[]> entry : counts.entrySet()) {
+				count.set(entry.getValue()[0]);
+				context.write(entry.getKey(), count);
+			}
+			counts.clear();
+		}
+	}
+	
+	/**
+	 * Base of the mappers that write the paths of transactions ordered by the frequent pattern.
+	 * The mapper writes the base item as a key and the path to that item as a value.
+	 * If numGroups is set, the items are split into groups and the mapper instead writes the group as a key 
+	 * and the transaction up to its last item in that group as a value, once per group.
+	 */
+	public static abstract class PathsMapper<KEYIN,VALUEIN>
+	extends Mapper<KEYIN,VALUEIN,IntWritable,ItemsetWritable>
+	{
+		//Variables
+		private IntWritable baseItem = new IntWritable();
+		private ItemsetWritable path = new ItemsetWritable();
+		private int numGroups;
+		private boolean[] groupWritten;
+		//Paths are only written for base items from this id on
+		protected int minBaseItem;
+		private Counter transactions;
+		private Counter pathsEmitted;
+		
+		public void setup(Context context) throws IOException {
+			numGroups = context.getConfiguration().getInt("numGroups", 0);
+			groupWritten = new boolean[numGroups];
+			minBaseItem = 0;
+			transactions = context.getCounter(MiningCounters.TRANSACTIONS);
+			pathsEmitted = context.getCounter(MiningCounters.PATHS_EMITTED);
+		}
+		
+		/**
+		 * Writes the paths of a transaction.
+		 * @param orderedItemset Transaction ordered by the frequent pattern.
+		 * @param length Number of items of the array in the transaction.
+		 * @param context Context to write to.
+		 */
+		protected void writePaths(int[] orderedItemset, int length, Context context) 
+		throws IOException, InterruptedException
+		{
+			transactions.increment(1);
+			if(numGroups > 0) {
+				writeGroupTransactions(orderedItemset, length, context);
+				return;
 			}
 			
-			//Candidate-1-itemsets
-			while(scLine.hasNext()) {
-				String item = scLine.next();
-				Itemset candidateItemset = new Itemset();
-				candidateItemset.addItem(item);
-				frequentItem.set(candidateItemset.toString());
-				context.write(frequentItem, one);
+			//Write each path with itemset
+			for(int i=0; i<length; i++) {
+				if(orderedItemset[i] < minBaseItem) {
+					continue;
+				}
+				baseItem.set(orderedItemset[i]);
+				path.set(orderedItemset, i+1, 1);
+				context.write(baseItem, path);
+				pathsEmitted.increment(1);
+			}
+		}
+		
+		/**
+		 * Writes the ordered transaction once for every group that one of its items belongs to.
+		 * The transaction is cut after the last item of the group, since the items after it are not needed
+		 * to mine that group's items.
+		 * @param orderedItemset Transaction ordered by the frequent pattern.
+		 * @param length Number of items of the array in the transaction.
+		 * @param context Context to write to.
+		 */
+		private void writeGroupTransactions(int[] orderedItemset, int length, Context context) 
+		throws IOException, InterruptedException
+		{
+			for(int i=length-1; i>=0; i--) {
+				int group = ItemsetUtils.getGroup(orderedItemset[i], numGroups);
+				if(groupWritten[group]) {
+					continue;
+				}
+				groupWritten[group] = true;
+				baseItem.set(group);
+				path.set(orderedItemset, i+1, 1);
+				context.write(baseItem, path);
+				pathsEmitted.increment(1);
+			}
+			for(int i=0; i<length; i++) {
+				groupWritten[ItemsetUtils.getGroup(orderedItemset[i], numGroups)] = false;
 			}
-			scLine.close();
 		}
 	}
 	
 	/**
 	 * Mapper that maps each transaction to an ordered itemset.
-	 * Order defined by the frequent pattern.
-	 * The mapper then writes the base item as a key and the path to that item as a value.
+	 * Order defined by the frequent pattern, which is the order of the item ids in the dictionary.
+	 * The mapper then writes the paths of the ordered itemset.
+	 * If the job writes a transaction cache, the ordered itemsets are also written to its named output.
 	 */
 	public static class OrderedItemsetMapper
-	extends Mapper<Object,Text,Text,Text>
+	extends PathsMapper<Object,Text>
 	{
 		//Variables
-		private Text baseItemText = new Text();
-		private Text pathText = new Text();
-		private Itemset[] frequentPattern;
+		private ItemDictionary dictionary;
+		private TransactionTokenizer tokenizer = new TransactionTokenizer();
 		private int offset;
+		private long parseNanos;
+		private MultipleOutputs<IntWritable,ItemsetWritable> outputs;
+		private ItemsetWritable transaction = new ItemsetWritable();
 		
 		//Set frequent pattern
 		public void setup(Context context) throws IOException {
-			//Read frequent items found and sort by support
+			super.setup(context);
+			//Load the frequent items ranked by support
 			offset = context.getConfiguration().getInt("offset", 0);
-			List<Itemset> freqItems = ItemsetUtils.getFreqItems(context.getConfiguration(), 
-					context.getConfiguration().get("hdfsOutputDir"));
-			frequentPattern = new Itemset[freqItems.size()];
-			freqItems.toArray(frequentPattern);
-			Arrays.sort(frequentPattern);
+			dictionary = ItemDictionary.load(context.getConfiguration());
+			if(context.getConfiguration().getBoolean("writeTransactionCache", false)) {
+				outputs = new MultipleOutputs<IntWritable,ItemsetWritable>(context);
+			}
 		}
 		
-		public void map(Object key, Text line, Context context) 
+		//The parse time is summed in nanoseconds and only reported once
+		protected void cleanup(Context context) 
 		throws IOException, InterruptedException
 		{
-			Itemset orderedItemset = new Itemset();
-			Itemset transaction = new Itemset();
-			Scanner scLine = new Scanner(line.toString());
-			//Skip data
-			for(int i=0; i<offset; i++) {
-				scLine.next();
+			context.getCounter(MiningCounters.PARSE_MILLIS).increment(parseNanos / 1000000);
+			if(outputs != null) {
+				outputs.close();
 			}
-			
-			//Construct the transaction 
-			while(scLine.hasNext()) {
-				transaction.addItem(scLine.next());
-			}
-			scLine.close();
-			
+		}
+		
+		public void map(Object key, Text line, Context context) 
+		throws IOException, InterruptedException
+		{
 			//Construct the transaction's ordered itemset
-			for(Itemset set : frequentPattern) {
-				if(transaction.contains(set.getLastItem()) ) {
-					orderedItemset.addItem(set.getLastItem());
-				}
-			}
-			
-			//Write each path with itemset
-			Itemset path = new Itemset();
-			for(String item : orderedItemset.getItemset()) {
-				path.addItem(item);
-				baseItemText.set(item);
-				pathText.set(path.toString());
-				context.write(baseItemText, pathText);
+			long start = System.nanoTime();
+			tokenizer.reset(line, offset);
+			int length = tokenizer.encode(dictionary);
+			int[] orderedItemset = tokenizer.getEncoded();
+			parseNanos += System.nanoTime() - start;
+			//Transactions without frequent items have no paths at any higher support either
+			if(outputs != null && length > 0) {
+				transaction.set(orderedItemset, length, 1);
+				outputs.write(TransactionCache.TRANSACTIONS_OUTPUT, NullWritable.get(), transaction, TransactionCache.TRANSACTIONS_PATH);
 			}
+			writePaths(orderedItemset, length, context);
 		}
 	}
 	
 	/**
-	 * Mapper that maps a line of frequent itemsets with combinations of rules.
+	 * Mapper that maps the frequent itemsets of a base item with combinations of rules.
+	 * Only rules that meet the minimum confidence are written.
+	 * If ruleTopN is set, only the strongest rules of the task are kept in a bounded heap and written when the task finishes.
+	 * Rules are written as AssociationRuleWritable keys, or as decoded text if the job has no reducers.
 	 */
 	public static class RulesMapper
-	extends Mapper<Object,Text,Text,DoubleWritable>
+	extends Mapper<IntWritable,ItemsetListWritable,Writable,DoubleWritable>
 	{
+		//Rules are written as text by map only jobs and as keys to sort by their items otherwise
 		private Text assocRule = new Text();
+		private AssociationRuleWritable ruleKey;
 		private DoubleWritable confidence = new DoubleWritable();
-		private List<Itemset> freqItems;
+		private ItemDictionary dictionary;
+		private SupportIndex supportIndex;
+		private ItemsetTree closedItemsets;
+		private double minConfidence;
+		private int topN;
+		private Comparator<AssociationRule> ruleOrder;
+		private PriorityQueue<AssociationRule> topRules;
+		private Counter ruleCandidates;
+		private Counter rulesGenerated;
+		private Counter rulesPruned;
+		private Counter rulesDropped;
+		//Rules written by the mapper are only counted when there are no reducers to count them
+		private Counter rulesWritten;
 		
-		//Set up frequent items to look up counts
+		//Set up frequent items and the support index to look up counts
 		public void setup(Context context) throws IOException {
-			String hdfsOutputDir = context.getConfiguration().get("hdfsOutputDir");
-			freqItems = ItemsetUtils.getFreqItems(context.getConfiguration(), hdfsOutputDir);
+			Configuration conf = context.getConfiguration();
+			ruleCandidates = context.getCounter(MiningCounters.RULE_CANDIDATES);
+			rulesGenerated = context.getCounter(MiningCounters.RULES_GENERATED);
+			rulesPruned = context.getCounter(MiningCounters.RULES_PRUNED_MAP);
+			rulesDropped = context.getCounter(MiningCounters.RULES_DROPPED);
+			if(context.getNumReduceTasks() == 0) {
+				rulesWritten = context.getCounter(MiningCounters.RULES_WRITTEN);
+			}
+			else {
+				ruleKey = new AssociationRuleWritable();
+			}
+			dictionary = ItemDictionary.load(conf);
+			supportIndex = SupportIndex.load(conf);
+			//The index of closed itemsets has no other itemsets, whose support is the one of their closure
+			if(conf.get("miningMode", "all").equals("closed")) {
+				closedItemsets = supportIndex.getItemsetTree();
+			}
+			minConfidence = Double.parseDouble(conf.get("confidence", "0"));
+			topN = conf.getInt("ruleTopN", 0);
+			if(topN > 0) {
+				ruleOrder = conf.get("ruleTopNBy", "confidence").equals("support") ? BY_SUPPORT : BY_CONFIDENCE;
+				//The weakest kept rule is at the head of the heap
+				topRules = new PriorityQueue<AssociationRule>(topN, ruleOrder);
+			}
 		}
 		
-		public void map(Object key, Text line, Context context) 
+		public void map(IntWritable baseItem, ItemsetListWritable freqItemsets, Context context) 
 		throws IOException, InterruptedException
 		{
-			List<Itemset> itemsets = ItemsetUtils.readFreqItemsets(line.toString());
+			List<Itemset> itemsets = freqItemsets.get();
 			List<AssociationRule> rules = new ArrayList<AssociationRule>();
+			int numCandidates = 0;
 			for(Itemset i : itemsets) {
-				Itemset base = new Itemset();
-				ItemsetUtils.genAssocRules(rules, itemsets, freqItems, base, i, i.getSupport());
+				numCandidates += ItemsetUtils.genAssocRules(rules, supportIndex, closedItemsets, i, minConfidence);
 			}
+			ruleCandidates.increment(numCandidates);
+			rulesGenerated.increment(rules.size());
+			rulesPruned.increment(numCandidates - rules.size());
 			
 			for(AssociationRule r : rules) {
-				assocRule.set(r.toString());
-				confidence.set(r.getConfidence());
-				context.write(assocRule, confidence);
+				if(topN > 0) {
+					if(topRules.size() < topN) {
+						topRules.add(r);
+						continue;
+					}
+					//Either the weakest kept rule or this rule is dropped
+					if(ruleOrder.compare(r, topRules.peek()) > 0) {
+						topRules.poll();
+						topRules.add(r);
+					}
+					rulesDropped.increment(1);
+				}
+				else {
+					writeRule(r, context);
+				}
+			}
+		}
+		
+		//Write the strongest rules first
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			if(topN > 0) {
+				List<AssociationRule> rules = new ArrayList<AssociationRule>(topRules);
+				Collections.sort(rules, Collections.reverseOrder(ruleOrder));
+				for(AssociationRule r : rules) {
+					writeRule(r, context);
+				}
+			}
+		}
+		
+		private void writeRule(AssociationRule r, Context context) throws IOException, InterruptedException {
+			confidence.set(r.getConfidence());
+			if(ruleKey != null) {
+				ruleKey.set(r);
+				context.write(ruleKey, confidence);
+				return;
+			}
+			assocRule.set(r.toString(dictionary));
+			context.write(assocRule, confidence);
+			rulesWritten.increment(1);
+		}
+		
+		//Orders rules by confidence, then support, then by their items so that the kept rules do not depend on input order
+		//Of rules that tie, the ones of the most frequent items are the strongest
+		private static final Comparator<AssociationRule> BY_CONFIDENCE = new Comparator<AssociationRule>() {
+			public int compare(AssociationRule a, AssociationRule b) {
+				int cmp = Double.compare(a.getConfidence(), b.getConfidence());
+				if(cmp == 0) {
+					cmp = Integer.compare(a.getSupport(), b.getSupport());
+				}
+				return cmp != 0 ? cmp : AssociationRule.compareItems(b, a);
+			}
+		};
+		
+		//Orders rules by support, then confidence, then by their items
+		private static final Comparator<AssociationRule> BY_SUPPORT = new Comparator<AssociationRule>() {
+			public int compare(AssociationRule a, AssociationRule b) {
+				int cmp = Integer.compare(a.getSupport(), b.getSupport());
+				if(cmp == 0) {
+					cmp = Double.compare(a.getConfidence(), b.getConfidence());
+				}
+				return cmp != 0 ? cmp : AssociationRule.compareItems(b, a);
+			}
+		};
+	}
+	
+	/**
+	 * Mapper that exports the frequent itemsets as text, one itemset and its support count per line.
+	 */
+	public static class FreqItemsetsTextMapper
+	extends Mapper<IntWritable,ItemsetListWritable,Text,IntWritable>
+	{
+		private Text itemsetText = new Text();
+		private IntWritable support = new IntWritable();
+		private ItemDictionary dictionary;
+		
+		public void setup(Context context) throws IOException {
+			dictionary = ItemDictionary.load(context.getConfiguration());
+		}
+		
+		public void map(IntWritable baseItem, ItemsetListWritable freqItemsets, Context context) 
+		throws IOException, InterruptedException
+		{
+			for(Itemset itemset : freqItemsets.get()) {
+				itemsetText.set(itemset.toString(dictionary));
+				support.set(itemset.getSupport());
+				context.write(itemsetText, support);
 			}
 		}
 	}
 	
+	/**
+	 * Combiner that sums the partial counts of an item before the shuffle.
+	 * Unlike the ItemsReducer it does not apply the minimum support.
+	 */
+	public static class ItemsCombiner
+	extends Reducer<Text,IntWritable,Text,IntWritable>
+	{
+		private IntWritable count = new IntWritable();
+		
+		public void reduce(Text item, Iterable<IntWritable> values, Context context) 
+		throws IOException, InterruptedException 
+		{
+			int sum = 0;
+			for (IntWritable i : values) {
+				sum += i.get();
+			}
+			count.set(sum);
+			context.write(item, count);
+		}
+	}
+	
 	/**
 	 * Reducer to aggregate Text keys and accumulate count
 	 */
@@ -163,7 +427,7 @@ public class FPGrowthMain {
 	extends Reducer<Text,IntWritable,Text,IntWritable>
 	{
 		//Variables
-		private Text freqItem = new Text();
+		private IntWritable count = new IntWritable();
 		private int minSupport;
 		
 		//Setup - set support 
@@ -181,114 +445,344 @@ public class FPGrowthMain {
 			}
 		    
 		    if(sum >= minSupport) {
-		    		IntWritable count = new IntWritable(sum);
-		    		Itemset itemset = ItemsetUtils.readItemset(item.toString());
-		    		freqItem.set(itemset.toString());
-		    		context.write(freqItem, count);
+		    		count.set(sum);
+		    		context.write(item, count);
 		    }
 		}
 	}
 	
 	/**
-	 * Reducer that aggregates all paths to a base item and constructs a list of all it's frequent itemsets
-	 * based on its conditional pattern bases.
+	 * Reducer that aggregates all paths to a base item into an FP tree and constructs a list of all it's frequent itemsets
+	 * based on its conditional FP tree.
+	 * If numGroups is set, the key is a group and the reducer builds a local FP tree of the group's transactions
+	 * and mines every item of the group from it.
+	 * If miningMode is closed or maximal, only the itemsets of the base item that are closed or maximal among the itemsets
+	 * of the base item are written, including the base item itself. Supersets with larger items are checked by the ItemsetFilterReducer.
+	 * If miningCosts is set, the cost of mining each base item is written as a line of text to the costs named output.
+	 * The itemsets of a base item are written in records of at most itemsetChunkSize itemsets, so a base item can have several records.
 	 */
 	public static class FreqItemsetReducer
-	extends Reducer<Text,Text,Text,Text>{
+	extends Reducer<IntWritable,ItemsetWritable,IntWritable,ItemsetListWritable>{
+		//Named output of the mining costs, which FileInputFormat skips as a hidden directory of the itemsets
+		public static final String COSTS_OUTPUT = "costs";
+		public static final String COSTS_PATH = "_costs/part";
+		
 		//Variables
-		private Text freqItemsets = new Text();
-		private Text value = new Text();
+		private IntWritable baseItemWritable = new IntWritable();
+		private ItemsetListWritable freqItemsets = new ItemsetListWritable();
 		private int minSupport;
-		private Itemset[] frequentPattern;
+		private int numGroups;
+		private String treeStorage;
+		private String miningMode;
+		private ForkJoinPool pool;
+		private boolean incremental;
+		//Named outputs of the itemsets and paths in incremental mode, and of the costs
+		private MultipleOutputs<IntWritable,ItemsetListWritable> outputs;
+		//Names of the base items in the costs, null if the costs are not written
+		private ItemDictionary dictionary;
+		private Text costItem = new Text();
+		private Text cost = new Text();
+		//Size of the conditional pattern base and the FP tree of the current key
+		private int numPaths;
+		private long numPathItems;
+		private int numTreeNodes;
+		private MiningStats stats = new MiningStats();
+		private long buildNanos;
+		private long miningNanos;
+		private long writeNanos;
+		//Itemsets of the current base item that are not written yet, written as one record when chunkSize are found
+		private List<Itemset> chunk = new ArrayList<Itemset>();
+		private int chunkSize;
+		private int numItemsets;
 		
 		protected void setup(Context context) throws IOException {
 			this.minSupport = context.getConfiguration().getInt("support", 0);
-			List<Itemset> freqItems = ItemsetUtils.getFreqItems(context.getConfiguration(), 
-					context.getConfiguration().get("hdfsOutputDir"));
-			frequentPattern = new Itemset[freqItems.size()];
-			freqItems.toArray(frequentPattern);
-			Arrays.sort(frequentPattern);
+			this.miningMode = context.getConfiguration().get("miningMode", "all");
+			this.numGroups = context.getConfiguration().getInt("numGroups", 0);
+			this.treeStorage = context.getConfiguration().get("fpTreeStorage", "node");
+			this.chunkSize = Math.max(context.getConfiguration().getInt("itemsetChunkSize", 10000), 1);
+			//Threads that mine the branches of a base item's conditional tree
+			int miningThreads = context.getConfiguration().getInt("miningThreads", 1);
+			if(miningThreads > 1) {
+				this.pool = new ForkJoinPool(miningThreads);
+			}
+			this.incremental = context.getConfiguration().get("incrementalState") != null;
+			if(context.getConfiguration().getBoolean("miningCosts", false)) {
+				this.dictionary = ItemDictionary.load(context.getConfiguration());
+			}
+			if(this.incremental || this.dictionary != null) {
+				this.outputs = new MultipleOutputs<IntWritable,ItemsetListWritable>(context);
+			}
 		}
 		
-		public void reduce(Text baseItem, Iterable<Text> paths, Context context) 
+		protected void cleanup(Context context) throws IOException, InterruptedException {
+			if(this.pool != null) {
+				this.pool.shutdown();
+			}
+			if(this.outputs != null) {
+				this.outputs.close();
+			}
+			//Times are summed in nanoseconds and only reported once
+			context.getCounter(MiningCounters.TREE_BUILD_MILLIS).increment(this.buildNanos / 1000000);
+			context.getCounter(MiningCounters.MINING_MILLIS).increment(this.miningNanos / 1000000);
+		}
+		
+		public void reduce(IntWritable key, Iterable<ItemsetWritable> paths, Context context) 
 		throws IOException, InterruptedException
 		{
-			//Construct conditional pattern base of the item
-			List<Itemset> condPattBase = new ArrayList<Itemset>();
-			int itemCount = 0;
-			for(Text path : paths) {
-				boolean exists = false;
-				Itemset pathItemset = ItemsetUtils.readItemset(path.toString());
-				pathItemset.removeLastItem();
-				pathItemset.setSupport(1);
-				for(Itemset i : condPattBase) {
-					if(pathItemset.equals(i)) {
-						i.incSupport();
-						exists = true;
-						break;
-					}
-				}
-				if(!exists && pathItemset.size() >= 1) {
-					condPattBase.add(pathItemset);
-				}
-				itemCount++;
+			//Construct the FP tree of the paths
+			long start = System.nanoTime();
+			FPTree tree = ItemsetUtils.newFPTree(treeStorage);
+			this.numPaths = 0;
+			this.numPathItems = 0;
+			for(ItemsetWritable path : paths) {
+				tree.insert(path.getItems(), path.size(), path.getSupport());
+				this.numPaths++;
+				this.numPathItems += path.size();
 			}
+			this.buildNanos += System.nanoTime() - start;
+			//Paths that share a prefix share its nodes, the root is not counted
+			this.numTreeNodes = tree.getNumNodes() - 1;
+			context.getCounter(MiningCounters.PATHS_RECEIVED).increment(this.numPaths);
+			context.getCounter(MiningCounters.PATH_ITEMS).increment(this.numPathItems);
+			context.getCounter(MiningCounters.TREE_NODES).increment(this.numTreeNodes);
 			
-			if(condPattBase.size() == 0) {
+			if(numGroups == 0) {
+				writeFreqItemsets(tree, key.get(), context);
+				//Keep the paths of the base item for the next incremental run
+				if(this.incremental) {
+					this.freqItemsets.set(tree.getPaths());
+					this.outputs.write(IncrementalState.PATHS_OUTPUT, key, this.freqItemsets, IncrementalState.PATHS_PATH);
+				}
 				return;
 			}
 			
-			//Construct freq itemsets
-			List<Itemset> fList = ItemsetUtils.findFList(condPattBase, minSupport);
-			Itemset[] freqList = new Itemset[fList.size()];
-			fList.toArray(freqList);
-			Arrays.sort(freqList);
-			
-			List<Itemset> frequentItemsets = new ArrayList<Itemset>();
+			//Mine each item of the group
+			for(int item=0; item<=tree.getMaxItem(); item++) {
+				if(ItemsetUtils.getGroup(item, numGroups) == key.get() && tree.getSupport(item) > 0) {
+					writeFreqItemsets(tree, item, context);
+				}
+			}
+		}
+		
+		/**
+		 * Mines the frequent itemsets of a base item from its conditional FP tree and writes them as one record.
+		 * @param tree FP tree containing the paths to the base item.
+		 * @param baseItem The base item.
+		 * @param context Context to write to.
+		 */
+		private void writeFreqItemsets(FPTree tree, int baseItem, final Context context) 
+		throws IOException, InterruptedException
+		{
+			long start = System.nanoTime();
+			long writeStart = this.writeNanos;
+			this.stats.clear();
+			this.baseItemWritable.set(baseItem);
+			this.numItemsets = 0;
+			FPTree condTree = tree.project(baseItem, minSupport);
+			this.stats.addCondTree(condTree, 1);
+			Itemset base = new Itemset(new int[] {baseItem}, tree.getSupport(baseItem));
 			
-			//Use the f-list to find the frequent-2-itemsets
-			for(Itemset itemset : freqList) {
-				Itemset freqItemset = new Itemset();
-				String condFreqItem = itemset.getLastItem();
-				freqItemset.addItem(condFreqItem);
-				freqItemset.addItem(baseItem.toString());
-				freqItemset.setSupport(Math.min(itemCount, itemset.getSupport()));
-				frequentItemsets.add(freqItemset);
-				//Recursive call to find the rest of the itemsets
-				ItemsetUtils.constructFreqItemsets(frequentItemsets, frequentPattern, condPattBase, freqItemset, minSupport);
+			//Closed and maximal itemsets are checked against the ones found before them, so they are mined sequentially
+			//and collected, like the itemsets of parallel tasks that are joined in order
+			if(!miningMode.equals("all") || this.pool != null) {
+				List<Itemset> frequentItemsets = new ArrayList<Itemset>();
+				if(miningMode.equals("closed")) {
+					ItemsetUtils.constructClosedItemsets(frequentItemsets, condTree, base, minSupport, new ItemsetTree());
+				}
+				else if(miningMode.equals("maximal")) {
+					ItemsetUtils.constructMaximalItemsets(frequentItemsets, condTree, base, minSupport, new ItemsetTree());
+				}
+				else if(!condTree.isEmpty()) {
+					ItemsetUtils.constructFreqItemsets(frequentItemsets, condTree, base, minSupport, this.pool, this.stats);
+				}
+				for(Itemset itemset : frequentItemsets) {
+					addItemset(itemset, context);
+				}
+			}
+			//Construct freq itemsets and write them while they are found
+			else if(!condTree.isEmpty()) {
+				ItemsetUtils.constructFreqItemsets(new ItemsetVisitor<IOException>() {
+					public void visit(Itemset itemset) throws IOException {
+						addItemset(itemset, context);
+					}
+				}, condTree, base, minSupport, this.stats);
 			}
+			writeChunk(context);
 			
-			//Write the itemsets to the output
-			String freqItemsets = "";
-			for(Itemset freq : frequentItemsets) {
-				freqItemsets += freq.toString()+":"+freq.getSupport()+";";
+			//The time spent writing the chunks is not part of the mining
+			long nanos = System.nanoTime() - start - (this.writeNanos - writeStart);
+			this.miningNanos += nanos;
+			context.getCounter(MiningCounters.BASE_ITEMS).increment(1);
+			context.getCounter(MiningCounters.COND_TREES).increment(this.stats.getNumCondTrees());
+			context.getCounter(MiningCounters.COND_TREE_NODES).increment(this.stats.getNumCondTreeNodes());
+			context.getCounter(MiningCounters.FREQ_ITEMSETS).increment(this.numItemsets);
+			if(this.dictionary != null) {
+				writeCost(baseItem, base.getSupport(), this.numItemsets, nanos);
+			}
+		}
+		
+		/**
+		 * Adds a frequent itemset of the current base item to the chunk and writes the chunk once it is full.
+		 * @param itemset Frequent itemset.
+		 * @param context Context to write to.
+		 * @throws IOException
+		 */
+		private void addItemset(Itemset itemset, Context context) throws IOException {
+			this.chunk.add(itemset);
+			this.numItemsets++;
+			if(this.chunk.size() >= this.chunkSize) {
+				try {
+					writeChunk(context);
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while writing the frequent itemsets.");
+				}
+			}
+		}
+		
+		/**
+		 * Writes the itemsets in the chunk as one record of the current base item and clears the chunk.
+		 * @param context Context to write to.
+		 */
+		private void writeChunk(Context context) 
+		throws IOException, InterruptedException
+		{
+			if(this.chunk.isEmpty()) {
+				return;
+			}
+			long start = System.nanoTime();
+			this.freqItemsets.set(this.chunk);
+			if(this.incremental) {
+				this.outputs.write(IncrementalState.ITEMSETS_OUTPUT, this.baseItemWritable, this.freqItemsets, IncrementalState.ITEMSETS_PATH);
+			}
+			else {
+				context.write(this.baseItemWritable, this.freqItemsets);
+			}
+			this.chunk.clear();
+			this.writeNanos += System.nanoTime() - start;
+		}
+		
+		/**
+		 * Writes the cost of mining a base item as the item followed by its support, the paths and path items of its conditional pattern base,
+		 * the nodes of the FP tree built from them, the conditional FP trees projected and their nodes, the depth of the recursion,
+		 * the itemsets found and the microseconds spent mining, separated by tabs.
+		 * If numGroups is set, the paths and the tree are the ones of the base item's group.
+		 * @param baseItem The base item.
+		 * @param support Support count of the base item.
+		 * @param numItemsets Number of itemsets found.
+		 * @param nanos Time spent mining in nanoseconds.
+		 */
+		private void writeCost(int baseItem, int support, int numItemsets, long nanos) 
+		throws IOException, InterruptedException
+		{
+			this.costItem.set(this.dictionary.getItem(baseItem));
+			this.cost.set(support+"\t"+this.numPaths+"\t"+this.numPathItems+"\t"+this.numTreeNodes+"\t"+this.stats.getNumCondTrees()
+				+"\t"+this.stats.getNumCondTreeNodes()+"\t"+this.stats.getMaxDepth()+"\t"+numItemsets+"\t"+(nanos / 1000));
+			this.outputs.write(COSTS_OUTPUT, this.costItem, this.cost, COSTS_PATH);
+		}
+	}
+	
+	/**
+	 * Mapper that sends each closed or maximal itemset found by a base item to the itemsets it could be a superset of.
+	 * The itemset is written as a candidate under its last item, which is the base item it was mined by,
+	 * and as a witness under every other item, since only itemsets with a smaller last item can be its subsets.
+	 */
+	public static class ItemsetFilterMapper
+	extends Mapper<IntWritable,ItemsetListWritable,IntWritable,ItemsetWritable>
+	{
+		private IntWritable item = new IntWritable();
+		private ItemsetWritable itemsetWritable = new ItemsetWritable();
+		
+		public void map(IntWritable baseItem, ItemsetListWritable freqItemsets, Context context) 
+		throws IOException, InterruptedException
+		{
+			for(Itemset itemset : freqItemsets.get()) {
+				itemsetWritable.set(itemset);
+				for(int i=0; i<itemset.size(); i++) {
+					item.set(itemset.getItem(i));
+					context.write(item, itemsetWritable);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reducer that keeps the candidates of an item that no witness contains.
+	 * Itemsets whose last item is the key are candidates, the others are witnesses.
+	 * A witness must have the same support as a candidate to contain it if miningMode is closed.
+	 */
+	public static class ItemsetFilterReducer
+	extends Reducer<IntWritable,ItemsetWritable,IntWritable,ItemsetListWritable>
+	{
+		private ItemsetListWritable survivors = new ItemsetListWritable();
+		private boolean closed;
+		
+		protected void setup(Context context) {
+			closed = context.getConfiguration().get("miningMode", "all").equals("closed");
+		}
+		
+		public void reduce(IntWritable item, Iterable<ItemsetWritable> itemsets, Context context) 
+		throws IOException, InterruptedException
+		{
+			List<Itemset> candidates = new ArrayList<Itemset>();
+			ItemsetTree witnesses = new ItemsetTree();
+			for(ItemsetWritable i : itemsets) {
+				Itemset itemset = i.get();
+				if(itemset.getLastItem() == item.get()) {
+					candidates.add(itemset);
+				}
+				else {
+					witnesses.add(itemset);
+				}
 			}
 			
-			this.freqItemsets.set(freqItemsets);
-			this.value.set("");
-			context.write(this.freqItemsets, this.value);
+			List<Itemset> itemsetsKept = new ArrayList<Itemset>();
+			for(Itemset candidate : candidates) {
+				if(!witnesses.hasSuperset(candidate, closed ? candidate.getSupport() : 0)) {
+					itemsetsKept.add(candidate);
+				}
+			}
+			if(!itemsetsKept.isEmpty()) {
+				survivors.set(itemsetsKept);
+				context.write(item, survivors);
+			}
 		}
 	}
 	
 	/**
 	 * Reducer for rules that check rules with the minimum confidence specified.
+	 * Rules arrive sorted by the item ids of their antecedent and consequent, and are written with the items decoded.
 	 */
 	public static class RulesReducer
-	extends Reducer<Text,DoubleWritable,Text,DoubleWritable>
+	extends Reducer<AssociationRuleWritable,DoubleWritable,Text,DoubleWritable>
 	{
+		private Text assocRule = new Text();
+		private ItemDictionary dictionary;
 		private double minConfidence;
+		private Counter rulesWritten;
+		private Counter rulesPruned;
 		
-		protected void setup(Context context) {
+		protected void setup(Context context) throws IOException {
 			String confString = context.getConfiguration().get("confidence", "0");
 			minConfidence = Double.parseDouble(confString);
+			dictionary = ItemDictionary.load(context.getConfiguration());
+			rulesWritten = context.getCounter(MiningCounters.RULES_WRITTEN);
+			rulesPruned = context.getCounter(MiningCounters.RULES_PRUNED_REDUCE);
 		}
 		
-		public void reduce(Text rule, Iterable<DoubleWritable> vals, Context context) 
+		public void reduce(AssociationRuleWritable rule, Iterable<DoubleWritable> vals, Context context) 
 		throws IOException, InterruptedException
 		{
+			assocRule.set(rule.get().toString(dictionary));
 			for(DoubleWritable c : vals) {
 				if(c.get() >= minConfidence) {
-					context.write(rule, c);
+					context.write(assocRule, c);
+					rulesWritten.increment(1);
+				}
+				else {
+					rulesPruned.increment(1);
 				}
 			}
 		}
@@ -299,17 +793,18 @@ public class FPGrowthMain {
 	 * @param conf Hadoop configuration variable.
 	 * @param input Input directory.
 	 * @param output Output directory.
-	 * @return true if the job completed successfully, false if not.
+	 * @return The completed job.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 * @throws InterruptedException
 	 */
-	private static boolean findFrequentItems(Configuration conf, String input, String output)
+	private static Job findFrequentItems(Configuration conf, String input, String output)
 	throws IOException, ClassNotFoundException, InterruptedException 
 	{
 		Job job = Job.getInstance(conf, "Find_Frequent_Items");
 		job.setJarByClass(FPGrowthMain.class);
 		job.setMapperClass(ItemsMapper.class);
+		job.setCombinerClass(ItemsCombiner.class);
 		job.setReducerClass(ItemsReducer.class);
 		job.setOutputKeyClass(Text.class);
 		job.setOutputValueClass(IntWritable.class);
@@ -317,7 +812,8 @@ public class FPGrowthMain {
 		FileInputFormat.addInputPath(job, new Path(input));
 		FileOutputFormat.setOutputPath(job, new Path(output));
 		
-		return job.waitForCompletion(true);
+		job.waitForCompletion(true);
+		return job;
 	}
 	
 	/**
@@ -325,27 +821,77 @@ public class FPGrowthMain {
 	 * @param conf Hadoop configuration variable.
 	 * @param input Input directory.
 	 * @param output Output directory.
-	 * @return true if the job completed successfully, false if not.
+	 * @param cache Cache of the transactions that the job reads or writes, null if there is none.
+	 * @return The completed job.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 * @throws InterruptedException
 	 */
-	private static boolean runFrequentItemsetGeneration(Configuration conf, String input, String output) 
+	private static Job runFrequentItemsetGeneration(Configuration conf, String input, String output, TransactionCache cache) 
 	throws IOException, ClassNotFoundException, InterruptedException 
 	{
 		Job job = Job.getInstance(conf, "Frequent_Itemsets_Generation");
 		job.setJarByClass(FPGrowthMain.class);
-		job.setMapperClass(OrderedItemsetMapper.class);
+		ItemDictionary.addToCache(job);
+		//Read the cached transactions, or write them while the input is parsed
+		if(cache != null && cache.isReused()) {
+			cache.addInput(job);
+		}
+		else {
+			job.setMapperClass(OrderedItemsetMapper.class);
+			FileInputFormat.addInputPath(job, new Path(input));
+			if(cache != null) {
+				TransactionCache.addOutput(job);
+			}
+		}
 		job.setReducerClass(FreqItemsetReducer.class);
-		job.setMapOutputKeyClass(Text.class);
-		job.setMapOutputValueClass(Text.class);
-		job.setOutputKeyClass(Text.class);
-		job.setOutputValueClass(Text.class);
+		if(conf.getBoolean("balanceReducers", true)) {
+			job.setPartitionerClass(SupportPartitioner.class);
+		}
+		job.setMapOutputKeyClass(IntWritable.class);
+		job.setMapOutputValueClass(ItemsetWritable.class);
+		job.setOutputKeyClass(IntWritable.class);
+		job.setOutputValueClass(ItemsetListWritable.class);
+		job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		if(conf.getBoolean("miningCosts", false)) {
+			MultipleOutputs.addNamedOutput(job, FreqItemsetReducer.COSTS_OUTPUT, TextOutputFormat.class, Text.class, Text.class);
+		}
+		
+		FileOutputFormat.setOutputPath(job, new Path(output));
+		
+		job.waitForCompletion(true);
+		return job;
+	}
+	
+	/**
+	 * Runs the mapreduce job that removes the closed or maximal itemsets of a base item that have a superset found by another base item.
+	 * @param conf Hadoop configuration variable.
+	 * @param input Input directory.
+	 * @param output Output directory.
+	 * @return The completed job.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws InterruptedException
+	 */
+	private static Job runItemsetFilter(Configuration conf, String input, String output) 
+	throws IOException, ClassNotFoundException, InterruptedException
+	{
+		Job job = Job.getInstance(conf, "Itemset_Filter");
+		job.setJarByClass(FPGrowthMain.class);
+		job.setMapperClass(ItemsetFilterMapper.class);
+		job.setReducerClass(ItemsetFilterReducer.class);
+		job.setInputFormatClass(SequenceFileInputFormat.class);
+		job.setMapOutputKeyClass(IntWritable.class);
+		job.setMapOutputValueClass(ItemsetWritable.class);
+		job.setOutputKeyClass(IntWritable.class);
+		job.setOutputValueClass(ItemsetListWritable.class);
+		job.setOutputFormatClass(SequenceFileOutputFormat.class);
 		
 		FileInputFormat.addInputPath(job, new Path(input));
 		FileOutputFormat.setOutputPath(job, new Path(output));
 		
-		return job.waitForCompletion(true);
+		job.waitForCompletion(true);
+		return job;
 	}
 	
 	/**
@@ -353,67 +899,249 @@ public class FPGrowthMain {
 	 * @param conf Hadoop configuration variable.
 	 * @param input Input directory.
 	 * @param output Output directory.
-	 * @return true if the job completed successfully, false if not.
+	 * @return The completed job.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 * @throws InterruptedException
 	 */
-	private static boolean runRuleGeneration(Configuration conf, String input, String output) 
+	private static Job runRuleGeneration(Configuration conf, String input, String output) 
 	throws IOException, ClassNotFoundException, InterruptedException
 	{
 		Job job = Job.getInstance(conf, "Rule_Generation");
 		job.setJarByClass(FPGrowthMain.class);
+		ItemDictionary.addToCache(job);
+		SupportIndex.addToCache(job);
 		job.setMapperClass(RulesMapper.class);
-		job.setReducerClass(RulesReducer.class);
+		//The mappers already apply the minimum confidence, so the reducers can be skipped
+		if(conf.getBoolean("mapOnlyRules", false)) {
+			job.setNumReduceTasks(0);
+		}
+		else {
+			job.setReducerClass(RulesReducer.class);
+			job.setMapOutputKeyClass(AssociationRuleWritable.class);
+			job.setMapOutputValueClass(DoubleWritable.class);
+		}
+		job.setInputFormatClass(SequenceFileInputFormat.class);
 		job.setOutputKeyClass(Text.class);
 		job.setOutputValueClass(DoubleWritable.class);
 		
 		FileInputFormat.addInputPath(job, new Path(input));
 		FileOutputFormat.setOutputPath(job, new Path(output));
 		
-		return job.waitForCompletion(true);
+		job.waitForCompletion(true);
+		return job;
 	}
 	
-	public static void main(String[] args) throws Exception {
-		//Arguements
-		String inputDir = args[0];
-		String outputDir = args[1];
-		int support = Integer.parseInt(args[2]);
-		String confidence = args[3];
-		int offset = Integer.parseInt(args[4]);
+	/**
+	 * Runs the map only job that exports the binary frequent itemsets as text.
+	 * @param conf Hadoop configuration variable.
+	 * @param input Input directory.
+	 * @param output Output directory.
+	 * @return The completed job.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws InterruptedException
+	 */
+	private static Job exportFreqItemsets(Configuration conf, String input, String output) 
+	throws IOException, ClassNotFoundException, InterruptedException
+	{
+		Job job = Job.getInstance(conf, "Frequent_Itemsets_Text_Export");
+		job.setJarByClass(FPGrowthMain.class);
+		ItemDictionary.addToCache(job);
+		job.setMapperClass(FreqItemsetsTextMapper.class);
+		job.setNumReduceTasks(0);
+		job.setInputFormatClass(SequenceFileInputFormat.class);
+		job.setOutputKeyClass(Text.class);
+		job.setOutputValueClass(IntWritable.class);
 		
-		//Program start
-		long start = System.currentTimeMillis();
+		FileInputFormat.addInputPath(job, new Path(input));
+		FileOutputFormat.setOutputPath(job, new Path(output));
 		
+		job.waitForCompletion(true);
+		return job;
+	}
+	
+	/**
+	 * Adds a completed job to the stages of the run and checks that it succeeded.
+	 * @param stages Stages of the run so far.
+	 * @param job The completed job.
+	 * @param startTime Time the job was submitted in milliseconds.
+	 * @param task What the job does, for the error message.
+	 * @throws IOException If the job failed.
+	 */
+	private static void addJob(List<PipelineStage> stages, Job job, long startTime, String task) throws IOException {
+		stages.add(new PipelineStage(job, startTime));
+		if(!job.isSuccessful()) {
+			throw new IOException("An error occured while "+task+".");
+		}
+	}
+	
+	/**
+	 * Runs all jobs that generate the association rules of a dataset.
+	 * Options are read from the configuration, as given with -D on the command line.
+	 * @param rulesConf Hadoop configuration variable.
+	 * @param inputDir Input directory.
+	 * @param outputDir Prefix of the output directories.
+	 * @param support Minimum support level.
+	 * @param confidence Minimum confidence level.
+	 * @param offset Number of leading fields of each line that are skipped before the items of the transaction.
+	 * @return The stages of the run in the order they ran, with the completed jobs and their counters.
+	 * @throws IOException If a job failed.
+	 * @throws ClassNotFoundException
+	 * @throws InterruptedException
+	 */
+	public static List<PipelineStage> run(Configuration rulesConf, String inputDir, String outputDir, int support, String confidence, int offset) 
+	throws IOException, ClassNotFoundException, InterruptedException
+	{
 		//Hadoop program configuration settings
-		boolean jobComplete;
-		Configuration rulesConf = new Configuration();
+		List<PipelineStage> stages = new ArrayList<PipelineStage>();
+		long start;
 		rulesConf.setInt("support", support);
 		rulesConf.set("confidence", confidence);
 		String hdfsOutputDir = rulesConf.get("fs.defaultFS") + outputDir;
 		rulesConf.set("hdfsOutputDir", hdfsOutputDir);
 		rulesConf.setInt("offset", offset);
 		
-		//Map-Reduce job to find frequent items
-		jobComplete = findFrequentItems(rulesConf, inputDir, outputDir);
-		if(!jobComplete) {
-			System.out.println("An error occured while finding the frequent items.");
-			System.exit(1);
+		//Incremental runs only mine the new batch and the base items it changes, the state is kept between runs
+		ItemDictionary dictionary;
+		String miningMode = rulesConf.get("miningMode", "all");
+		String freqItemsetsDir;
+		String incrementalState = rulesConf.get("incrementalState");
+		if(incrementalState != null) {
+			if(rulesConf.getInt("numGroups", 0) != 0 || !miningMode.equals("all")) {
+				throw new IOException("Incremental mining only supports numGroups=0 and miningMode=all.");
+			}
+			IncrementalState state = new IncrementalState(rulesConf, new Path(incrementalState));
+			try {
+				dictionary = state.update(inputDir);
+			}
+			finally {
+				stages.addAll(state.getStages());
+			}
+			freqItemsetsDir = state.getFreqItemsetsDir().toString();
+		}
+		else {
+			//Runs on the input of the cached transactions with at least their support read the cache instead of counting the items
+			String transactionCache = rulesConf.get("transactionCache");
+			TransactionCache cache = transactionCache == null ? null : new TransactionCache(rulesConf, new Path(transactionCache));
+			start = System.currentTimeMillis();
+			dictionary = cache == null ? null : cache.readDictionary(inputDir, offset, support);
+			if(dictionary == null) {
+				//Map-Reduce job to find frequent items
+				addJob(stages, findFrequentItems(rulesConf, inputDir, outputDir), start, "finding the frequent items");
+				
+				//Rank the frequent items once
+				start = System.currentTimeMillis();
+				dictionary = ItemDictionary.read(rulesConf, hdfsOutputDir);
+			}
+			//Publish the frequent items to the later jobs
+			dictionary.publish(rulesConf, new Path(outputDir+"ItemTable"));
+			stages.add(new PipelineStage("Item_Dictionary", start));
+			
+			//Generate frequent itemsets
+			String candidatesDir = miningMode.equals("all") ? outputDir+"FreqItemsets" : outputDir+"CandidateItemsets";
+			start = System.currentTimeMillis();
+			addJob(stages, runFrequentItemsetGeneration(rulesConf, inputDir, candidatesDir, cache), start, "finding the frequent itemsets");
+			if(cache != null && !cache.isReused()) {
+				start = System.currentTimeMillis();
+				cache.commit(new Path(candidatesDir), new Path(outputDir+"ItemTable"), inputDir, offset, support);
+				stages.add(new PipelineStage("Transaction_Cache", start));
+			}
+			
+			//Remove the closed or maximal itemsets of each base item that have a superset found by another base item
+			if(!miningMode.equals("all")) {
+				start = System.currentTimeMillis();
+				addJob(stages, runItemsetFilter(rulesConf, candidatesDir, outputDir+"FreqItemsets"), start, "filtering the "+miningMode+" itemsets");
+			}
+			freqItemsetsDir = outputDir+"FreqItemsets";
 		}
 		
-		//Generate frequent itemsets
-		jobComplete = runFrequentItemsetGeneration(rulesConf, inputDir, outputDir+"FreqItemsets");
-		if(!jobComplete) {
-			System.out.println("An error occured while finding the frequent itemsets.");
-			System.exit(1);
+		//The subsets of maximal itemsets have no support counts to generate rules with
+		if(!miningMode.equals("maximal")) {
+			//Index the support counts of all frequent itemsets for the rule generation
+			start = System.currentTimeMillis();
+			SupportIndex supportIndex = SupportIndex.build(rulesConf, dictionary, new Path(freqItemsetsDir));
+			supportIndex.publish(rulesConf, new Path(outputDir+"SupportIndex"));
+			stages.add(new PipelineStage("Support_Index", start));
+			
+			//Generate association rules
+			start = System.currentTimeMillis();
+			addJob(stages, runRuleGeneration(rulesConf, freqItemsetsDir, outputDir+"Rules"), start, "generating rules");
 		}
 		
-		//Generate association rules
-		jobComplete = runRuleGeneration(rulesConf, outputDir+"FreqItemsets", outputDir+"Rules");
-		if(!jobComplete) {
-			System.out.println("An error occured while generating rules.");
+		//Export the frequent itemsets as text
+		if(rulesConf.getBoolean("exportFreqItemsets", false)) {
+			start = System.currentTimeMillis();
+			addJob(stages, exportFreqItemsets(rulesConf, freqItemsetsDir, outputDir+"FreqItemsetsText"), start, "exporting the frequent itemsets");
+		}
+		return stages;
+	}
+	
+	/**
+	 * Prints the wall time of each stage of a run and the mining counters of its job,
+	 * with the ratios of the counters that show where a slow job spends its time.
+	 * @param stages Stages of the run.
+	 * @throws IOException
+	 */
+	private static void printStageSummary(List<PipelineStage> stages) throws IOException {
+		System.out.println("Stage summary:");
+		for(PipelineStage stage : stages) {
+			System.out.println(String.format("  %-40s %10.1fs", stage.getName(), stage.getWallMillis()/1000.0));
+			//Stages of the driver have no counters
+			Counters counters = stage.getJob() != null ? stage.getJob().getCounters() : null;
+			if(counters == null) {
+				continue;
+			}
+			for(MiningCounters c : MiningCounters.values()) {
+				long value = counters.findCounter(c).getValue();
+				if(value != 0) {
+					System.out.println(String.format("    %-38s %11d", c.name(), value));
+				}
+			}
+			
+			long transactions = counters.findCounter(MiningCounters.TRANSACTIONS).getValue();
+			long pathItems = counters.findCounter(MiningCounters.PATH_ITEMS).getValue();
+			long baseItems = counters.findCounter(MiningCounters.BASE_ITEMS).getValue();
+			if(transactions > 0) {
+				double paths = counters.findCounter(MiningCounters.PATHS_EMITTED).getValue();
+				System.out.println(String.format("    %-38s %11.2f", "Paths per transaction", paths/transactions));
+			}
+			//Path items that an existing tree node absorbed
+			if(pathItems > 0) {
+				double treeNodes = counters.findCounter(MiningCounters.TREE_NODES).getValue();
+				System.out.println(String.format("    %-38s %10.1f%%", "Shared path items", 100*(1 - treeNodes/pathItems)));
+			}
+			if(baseItems > 0) {
+				double itemsets = counters.findCounter(MiningCounters.FREQ_ITEMSETS).getValue();
+				System.out.println(String.format("    %-38s %11.2f", "Itemsets per base item", itemsets/baseItems));
+			}
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		//Generic options (-D numGroups=n etc.) are set on the configuration
+		Configuration rulesConf = new Configuration();
+		args = new GenericOptionsParser(rulesConf, args).getRemainingArgs();
+		
+		//Arguements
+		String inputDir = args[0];
+		String outputDir = args[1];
+		int support = Integer.parseInt(args[2]);
+		String confidence = args[3];
+		int offset = Integer.parseInt(args[4]);
+		
+		//Program start
+		long start = System.currentTimeMillis();
+		
+		List<PipelineStage> stages = null;
+		try {
+			stages = run(rulesConf, inputDir, outputDir, support, confidence, offset);
+		}
+		catch(IOException e) {
+			System.out.println(e.getMessage());
 			System.exit(1);
 		}
+		printStageSummary(stages);
 		
 		//Print computation time
 		long end = System.currentTimeMillis();
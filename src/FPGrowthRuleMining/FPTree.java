@@ -0,0 +1,68 @@
+//FP tree with a header table that links all nodes of the same item
+//Paths are inserted in frequent pattern order, which is ascending item id
+
+package FPGrowthRuleMining;
+
+import java.util.List;
+
+public interface FPTree {
+	/**
+	 * Returns the largest item id in the tree.
+	 * @return Largest item id, -1 if the tree is empty.
+	 */
+	public int getMaxItem();
+
+	/**
+	 * Determines if the tree has no paths.
+	 * @return true if the tree is empty, false if not.
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Returns the support count of an item in the tree.
+	 * @param item Id of the item.
+	 * @return Sum of the counts of all nodes of the item.
+	 */
+	public int getSupport(int item);
+
+	/**
+	 * Returns the number of nodes in the tree, including the root.
+	 * Paths that share a prefix share its nodes, so this is less than the number of items inserted when paths overlap.
+	 * @return Number of nodes.
+	 */
+	public int getNumNodes();
+
+	/**
+	 * Inserts a path into the tree.
+	 * @param path Itemset sorted in frequent pattern order.
+	 * @param count Number of times the path occurs.
+	 */
+	public void insert(Itemset path, int count);
+
+	/**
+	 * Inserts a path into the tree.
+	 * @param path Item ids sorted in frequent pattern order.
+	 * @param length Number of items of the array in the path.
+	 * @param count Number of times the path occurs.
+	 */
+	public void insert(int[] path, int length, int count);
+
+	/**
+	 * Returns the distinct paths of the tree. The support of a path is the number of times it was inserted,
+	 * so inserting the paths into an empty tree builds the same tree.
+	 * @return Paths from the root in frequent pattern order.
+	 */
+	public List<Itemset> getPaths();
+
+	/**
+	 * Constructs the conditional FP tree of an item by following the item's node links
+	 * and inserting the prefix path of each node. Items that are not frequent in the
+	 * conditional pattern base are left out of the paths.
+	 * The conditional tree is of the same class as this tree. An ArrayFPTree keeps small conditional trees on the heap
+	 * and stores large ones like this tree.
+	 * @param item Item to construct the conditional tree for.
+	 * @param minSupport Minimum support level.
+	 * @return Conditional FP tree of the item.
+	 */
+	public FPTree project(int item, int minSupport);
+}
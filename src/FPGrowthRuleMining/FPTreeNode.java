@@ -2,30 +2,38 @@ package FPGrowthRuleMining;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class FPTreeNode {
+	//Nodes with more children than this index them in a hash table
+	private static final int MAX_SCANNED_CHILDREN = 8;
+	
 	//Variables
-	private String item;
+	private int item;
 	private int count;
 	private FPTreeNode next;
 	private FPTreeNode parent;
 	private List<FPTreeNode> children;
+	private int[] childItems;
+	private int[] childTable;
 	
 	//Constructor
 	public FPTreeNode() {
-		this.item = null;
+		this.item = -1;
 		this.count = 0;
 		this.next = null;
 		this.parent = null;
-		this.children = new ArrayList<FPTreeNode>();
+		this.children = new ArrayList<FPTreeNode>(0);
+		this.childItems = new int[0];
 	}
 
-	public FPTreeNode(String item, int count) {
+	public FPTreeNode(int item, int count) {
 		this.item = item;
 		this.count = count;
 		this.next = null;
 		this.parent = null;
-		this.children = new ArrayList<FPTreeNode>();
+		this.children = new ArrayList<FPTreeNode>(0);
+		this.childItems = new int[0];
 	}
 	
 	//Copy constructor
@@ -34,7 +42,8 @@ public class FPTreeNode {
 		this.count = other.count;
 		this.next = null;
 		this.parent = null;
-		this.children = new ArrayList<FPTreeNode>();
+		this.children = new ArrayList<FPTreeNode>(0);
+		this.childItems = new int[0];
 	}
 	
 	//Methods
@@ -42,7 +51,7 @@ public class FPTreeNode {
 	 * Returns the item that the node represents.
 	 * @return Item associated with the node.
 	 */
-	public String getItem() {
+	public int getItem() {
 		return this.item;
 	}
 	
@@ -54,6 +63,14 @@ public class FPTreeNode {
 		return this.count;
 	}
 	
+	/**
+	 * Sets the count of this node.
+	 * @param count New count.
+	 */
+	public void setCount(int count) {
+		this.count = count;
+	}
+	
 	/**
 	 * Sets the next node.
 	 * @param next Node to link to this
@@ -103,13 +120,31 @@ public class FPTreeNode {
 	}
 	
 	/**
-	 * Returns the list of nodes that are children of this.
+	 * Returns the list of nodes that are children of this, in the order they were added.
 	 * @return List of children nodes.
 	 */
 	public List<FPTreeNode> getChildrenNodes(){
 		return this.children;
 	}
 	
+	/**
+	 * Returns the number of children of this node.
+	 * @return Number of children nodes.
+	 */
+	public int getChildCount() {
+		return this.children.size();
+	}
+	
+	/**
+	 * Returns the child node whose item is the one specified.
+	 * @param item Item to find.
+	 * @return The child node, null if this node does not have a child with the item.
+	 */
+	public FPTreeNode getChild(int item) {
+		int childIndex = this.hasChild(item);
+		return childIndex == -1 ? null : this.children.get(childIndex);
+	}
+	
 	/**
 	 * Adds a new child node to this node if it does not exist yet.
 	 * If this node has a child with the same item, it increases the count of that child.
@@ -117,12 +152,13 @@ public class FPTreeNode {
 	 * @param count Count of the item.
 	 * @return The child FPNode that was added.
 	 */
-	public FPTreeNode addChild(String item, int count) {
+	public FPTreeNode addChild(int item, int count) {
 		int childIndex = this.hasChild(item);
 		if(childIndex == -1) {
 			FPTreeNode child = new FPTreeNode(item, count);
-			this.children.add(child);
 			child.setParent(this);
+			indexChild(item, this.children.size());
+			this.children.add(child);
 			return child;
 		}
 		else {
@@ -141,18 +177,93 @@ public class FPTreeNode {
 	
 	/**
 	 * Determines if this node has a child node whose item is the one specified. 
+	 * Few children are scanned in a compact array of their items, many children are found in a hash table.
 	 * @param item Item to check.
 	 * @return The index of the child of this node. Returns -1 if this node does not have a child with the item specified.
 	 */
-	public int hasChild(String item) {
-		for(int i=0; i<this.children.size(); i++) {
-			if(this.children.get(i).getItem().equals(item)) {
-				return i;
+	public int hasChild(int item) {
+		if(this.childTable == null) {
+			int numChildren = this.children.size();
+			for(int i=0; i<numChildren; i++) {
+				if(this.childItems[i] == item) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		//Linear probing, slots hold the child index plus one so that 0 is empty
+		int mask = this.childTable.length-1;
+		for(int slot = hash(item) & mask; this.childTable[slot] != 0; slot = (slot+1) & mask) {
+			int childIndex = this.childTable[slot]-1;
+			if(this.childItems[childIndex] == item) {
+				return childIndex;
 			}
 		}
 		return -1;
 	}
 	
+	/**
+	 * Records the item of a new child so that it can be found by hasChild.
+	 * Switches to a hash table once the node has more than MAX_SCANNED_CHILDREN children.
+	 * @param item Item of the child.
+	 * @param childIndex Index of the child in the children list.
+	 */
+	private void indexChild(int item, int childIndex) {
+		if(childIndex == this.childItems.length) {
+			this.childItems = Arrays.copyOf(this.childItems, Math.max(2, childIndex*2));
+		}
+		this.childItems[childIndex] = item;
+		
+		if(this.childTable == null) {
+			if(childIndex < MAX_SCANNED_CHILDREN) {
+				return;
+			}
+			rehash(64, childIndex+1);
+		}
+		else if((childIndex+1)*2 > this.childTable.length) {
+			rehash(this.childTable.length*2, childIndex+1);
+		}
+		else {
+			putSlot(childIndex);
+		}
+	}
+	
+	/**
+	 * Rebuilds the hash table of children with the given number of slots.
+	 * @param size Number of slots, a power of two.
+	 * @param numChildren Number of children to put in the table.
+	 */
+	private void rehash(int size, int numChildren) {
+		this.childTable = new int[size];
+		for(int i=0; i<numChildren; i++) {
+			putSlot(i);
+		}
+	}
+	
+	/**
+	 * Puts a child index into the first free slot for its item.
+	 * @param childIndex Index of the child.
+	 */
+	private void putSlot(int childIndex) {
+		int mask = this.childTable.length-1;
+		int slot = hash(this.childItems[childIndex]) & mask;
+		while(this.childTable[slot] != 0) {
+			slot = (slot+1) & mask;
+		}
+		this.childTable[slot] = childIndex+1;
+	}
+	
+	/**
+	 * Spreads the bits of an item id for the hash table.
+	 * @param item Item id.
+	 * @return Hash of the item.
+	 */
+	private static int hash(int item) {
+		int h = item * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
 	/**
 	 * Determines if this node has children nodes.
 	 * @return true if this has children nodes, false if not.
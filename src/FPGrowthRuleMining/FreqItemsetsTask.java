@@ -0,0 +1,126 @@
+//Fork join task that mines the frequent itemsets of a conditional FP tree with one subtask per branch
+//Branches are joined in the order of the sequential recursion, so the result is the same as ItemsetUtils.constructFreqItemsets
+
+package FPGrowthRuleMining;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveTask;
+
+public class FreqItemsetsTask extends RecursiveTask<List<Itemset>> {
+	private static final long serialVersionUID = 1L;
+	//Conditional trees with fewer frequent items than this are mined sequentially
+	private static final int MIN_SPLIT_ITEMS = 16;
+	//Item of a task that mines all branches of its tree
+	private static final int ALL_BRANCHES = -1;
+
+	//Variables
+	private FPTree condTree;
+	private Itemset base;
+	private int item;
+	private int minSupport;
+	private MiningStats stats;
+
+	//Constructors
+	/**
+	 * Creates a task that mines all frequent itemsets of a conditional FP tree.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
+	 */
+	public FreqItemsetsTask(FPTree condTree, Itemset base, int minSupport) {
+		this(condTree, base, ALL_BRANCHES, minSupport, null);
+	}
+
+	/**
+	 * Creates a task that mines all frequent itemsets of a conditional FP tree and keeps statistics of the mining.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
+	 * @param stats Statistics that the conditional FP trees projected by all subtasks are added to, null to not keep any.
+	 */
+	public FreqItemsetsTask(FPTree condTree, Itemset base, int minSupport, MiningStats stats) {
+		this(condTree, base, ALL_BRANCHES, minSupport, stats);
+	}
+
+	/**
+	 * Creates a task that mines the branch of one item of a conditional FP tree.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param item Frequent item of the tree whose branch is mined.
+	 * @param minSupport Minimum support level.
+	 * @param stats Statistics of the mining, null to not keep any.
+	 */
+	private FreqItemsetsTask(FPTree condTree, Itemset base, int item, int minSupport, MiningStats stats) {
+		this.condTree = condTree;
+		this.base = base;
+		this.item = item;
+		this.minSupport = minSupport;
+		this.stats = stats;
+	}
+
+	//Methods
+	protected List<Itemset> compute() {
+		if(this.item == ALL_BRANCHES) {
+			return mineBranches(this.condTree, this.base, this.minSupport, this.stats);
+		}
+
+		//The branch's itemset comes before the itemsets extending it, like in the sequential recursion
+		List<Itemset> frequentItemsets = new ArrayList<Itemset>();
+		Itemset freqItemset = this.base.withFirstItem(this.item, this.condTree.getSupport(this.item));
+		frequentItemsets.add(freqItemset);
+
+		FPTree itemCondTree = this.condTree.project(this.item, this.minSupport);
+		if(this.stats != null) {
+			this.stats.addCondTree(itemCondTree, freqItemset.size());
+		}
+		if(countFrequentItems(itemCondTree, this.minSupport) >= MIN_SPLIT_ITEMS) {
+			frequentItemsets.addAll(mineBranches(itemCondTree, freqItemset, this.minSupport, this.stats));
+		}
+		else if(!itemCondTree.isEmpty()) {
+			ItemsetUtils.constructFreqItemsets(frequentItemsets, itemCondTree, freqItemset, this.minSupport, this.stats);
+		}
+		return frequentItemsets;
+	}
+
+	/**
+	 * Counts the frequent items of a conditional FP tree, which are the branches it would be split into.
+	 * Stops counting once there are enough to split the tree.
+	 * @param condTree Conditional FP tree.
+	 * @param minSupport Minimum support level.
+	 * @return Number of frequent items, at most MIN_SPLIT_ITEMS.
+	 */
+	private static int countFrequentItems(FPTree condTree, int minSupport) {
+		int numItems = 0;
+		for(int item = condTree.getMaxItem(); item >= 0 && numItems < MIN_SPLIT_ITEMS; item--) {
+			if(condTree.getSupport(item) >= minSupport) {
+				numItems++;
+			}
+		}
+		return numItems;
+	}
+
+	/**
+	 * Mines every frequent item's branch of a conditional FP tree in its own subtask.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
+	 * @param stats Statistics of the mining, null to not keep any.
+	 * @return Frequent itemsets of the branches, from the largest item id down.
+	 */
+	private static List<Itemset> mineBranches(FPTree condTree, Itemset base, int minSupport, MiningStats stats) {
+		List<FreqItemsetsTask> branches = new ArrayList<FreqItemsetsTask>();
+		for(int item = condTree.getMaxItem(); item >= 0; item--) {
+			if(condTree.getSupport(item) >= minSupport) {
+				branches.add(new FreqItemsetsTask(condTree, base, item, minSupport, stats));
+			}
+		}
+		invokeAll(branches);
+
+		List<Itemset> frequentItemsets = new ArrayList<Itemset>();
+		for(FreqItemsetsTask branch : branches) {
+			frequentItemsets.addAll(branch.join());
+		}
+		return frequentItemsets;
+	}
+}
@@ -0,0 +1,539 @@
+//State that incremental runs keep between batches of transactions, and the jobs that update it with a new batch
+//Each run writes a new generation of the state: full item counts, the item table, the prefix paths and frequent itemsets of every base item
+//Item ids stay stable across runs, so only base items that get new paths have to be mined again
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.KeyValueTextInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+public class IncrementalState {
+	//Remap table layout: header, new id of each old id (-1 if the item is no longer frequent), changed flag of each new id
+	private static final int MAGIC = 0x46505254;
+	private static final int HEADER_SIZE = 16;
+	//Name of the remap table's link in the task's working directory
+	private static final String CACHE_LINK = "remapTable";
+	//Named outputs of the frequent itemset generation and their paths in a generation
+	public static final String ITEMSETS_OUTPUT = "itemsets";
+	public static final String PATHS_OUTPUT = "paths";
+	public static final String ITEMSETS_PATH = "FreqItemsets/part";
+	public static final String PATHS_PATH = "Paths/part";
+	//Marks a generation that was written completely
+	private static final String COMMITTED = "_COMMITTED";
+
+	//Variables
+	private Configuration conf;
+	private FileSystem fs;
+	private Path stateDir;
+	private Path previous;
+	private Path current;
+	//Stages of the last update
+	private List<PipelineStage> stages;
+
+	//Constructors
+	/**
+	 * Opens the state in a directory. The latest committed generation is the previous state
+	 * and the generation after it is written by this run.
+	 * @param conf Hadoop configuration variable being used
+	 * @param stateDir Directory of the state.
+	 * @throws IOException
+	 */
+	public IncrementalState(Configuration conf, Path stateDir) throws IOException {
+		this.conf = conf;
+		this.fs = stateDir.getFileSystem(conf);
+		this.stateDir = stateDir;
+
+		int latest = 0;
+		if(this.fs.exists(stateDir)) {
+			for(FileStatus status : this.fs.listStatus(stateDir)) {
+				String name = status.getPath().getName();
+				if(name.startsWith("gen-") && this.fs.exists(new Path(status.getPath(), COMMITTED))) {
+					latest = Math.max(latest, Integer.parseInt(name.substring(4)));
+				}
+			}
+		}
+		this.previous = latest == 0 ? null : generation(latest);
+		this.current = generation(latest+1);
+		this.stages = new ArrayList<PipelineStage>();
+		//Remove what a failed run left of this generation
+		this.fs.delete(this.current, true);
+	}
+
+	//Methods
+	private Path generation(int number) {
+		String numberString = ""+number;
+		return new Path(this.stateDir, "gen-" + (("00000"+numberString).substring(numberString.length())));
+	}
+
+	/**
+	 * Returns the directory of the frequent itemsets written by this run.
+	 * @return Directory of SequenceFiles of base items and their frequent itemsets.
+	 */
+	public Path getFreqItemsetsDir() {
+		return new Path(this.current, "Mined/FreqItemsets");
+	}
+
+	/**
+	 * Returns the stages of the last update, including a job that failed.
+	 * @return The stages in the order they ran.
+	 */
+	public List<PipelineStage> getStages() {
+		return this.stages;
+	}
+
+	/**
+	 * Updates the state with a new batch of transactions and mines the base items that changed.
+	 * The dictionary of this run is published to the configuration.
+	 * @param input Directory of the new transactions.
+	 * @return Dictionary of the frequent items.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws InterruptedException
+	 */
+	public ItemDictionary update(String input) throws IOException, ClassNotFoundException, InterruptedException {
+		int minSupport = this.conf.getInt("support", 0);
+
+		//Add the counts of the new transactions to the counts of all transactions
+		Path countsDir = new Path(this.current, "ItemCounts");
+		Path oldCountsDir = this.previous == null ? null : new Path(this.previous, "ItemCounts");
+		long start = System.currentTimeMillis();
+		Job countsJob = runItemCounts(this.conf, input, oldCountsDir, countsDir);
+		this.stages.add(new PipelineStage(countsJob, start));
+		if(!countsJob.isSuccessful()) {
+			throw new IOException("An error occured while counting the items.");
+		}
+
+		//Keep the ids of the items that are still frequent and add the new frequent items after them
+		start = System.currentTimeMillis();
+		ItemDictionary oldDictionary = null;
+		int oldSupport = -1;
+		List<String> history = new ArrayList<String>();
+		if(this.previous != null) {
+			oldDictionary = ItemDictionary.readTable(this.conf, new Path(this.previous, "ItemTable"));
+			List<String> properties = readLines(new Path(this.previous, "Support"));
+			oldSupport = Integer.parseInt(properties.get(0));
+			history = readLines(new Path(this.previous, "Inputs"));
+		}
+		Map<String,Integer> counts = readCounts(countsDir, minSupport);
+		ItemDictionary dictionary = updateDictionary(oldDictionary, counts);
+		dictionary.publish(this.conf, new Path(this.current, "ItemTable"));
+
+		//Base items are mined again if they are new or got new paths, all of them if the support changed or items were dropped
+		int numOldItems = oldDictionary == null ? 0 : oldDictionary.size();
+		int[] remap = new int[numOldItems];
+		boolean remineAll = oldSupport != minSupport;
+		for(int id=0; id<numOldItems; id++) {
+			remap[id] = dictionary.getId(oldDictionary.getItem(id));
+			remineAll |= remap[id] == -1;
+		}
+		int firstNewItem = numOldItems;
+		for(int id=0; id<numOldItems; id++) {
+			if(remap[id] == -1) {
+				firstNewItem--;
+			}
+		}
+		boolean[] changed = new boolean[dictionary.size()];
+		for(int id=0; id<dictionary.size(); id++) {
+			changed[id] = remineAll || id >= firstNewItem || dictionary.getSupport(id) != oldDictionary.getSupport(oldDictionary.getId(dictionary.getItem(id)));
+		}
+		publishRemapTable(new Path(this.current, "RemapTable"), remap, changed);
+		this.conf.setInt("firstNewItem", firstNewItem);
+		this.stages.add(new PipelineStage("Item_Dictionary", start));
+
+		//Paths of the new items in the transactions of earlier batches
+		List<String> rescan = firstNewItem < dictionary.size() ? history : new ArrayList<String>();
+		start = System.currentTimeMillis();
+		Job pathsJob = runPathUpdate(this.conf, input, rescan, this.previous, new Path(this.current, "Mined"));
+		this.stages.add(new PipelineStage(pathsJob, start));
+		if(!pathsJob.isSuccessful()) {
+			throw new IOException("An error occured while finding the frequent itemsets.");
+		}
+
+		//Commit the generation and remove the older ones
+		history.add(new Path(input).getFileSystem(this.conf).makeQualified(new Path(input)).toString());
+		writeLines(new Path(this.current, "Inputs"), history);
+		writeLines(new Path(this.current, "Support"), Arrays.asList(""+minSupport));
+		this.fs.create(new Path(this.current, COMMITTED), true).close();
+		for(FileStatus status : this.fs.listStatus(this.stateDir)) {
+			if(status.getPath().getName().startsWith("gen-") && !status.getPath().getName().equals(this.current.getName())) {
+				this.fs.delete(status.getPath(), true);
+			}
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Creates the dictionary of this run. Items that were frequent before keep their order,
+	 * and items that became frequent are ranked by support after them.
+	 * @param oldDictionary Dictionary of the previous run, null if there is none.
+	 * @param counts Support count of each frequent item.
+	 * @return Dictionary of the frequent items.
+	 */
+	private static ItemDictionary updateDictionary(ItemDictionary oldDictionary, Map<String,Integer> counts) {
+		List<String> items = new ArrayList<String>();
+		List<Integer> supports = new ArrayList<Integer>();
+		if(oldDictionary != null) {
+			for(int id=0; id<oldDictionary.size(); id++) {
+				Integer count = counts.remove(oldDictionary.getItem(id));
+				if(count != null) {
+					items.add(oldDictionary.getItem(id));
+					supports.add(count);
+				}
+			}
+		}
+		ItemDictionary newItems = ItemDictionary.rank(new ArrayList<String>(counts.keySet()), new ArrayList<Integer>(counts.values()));
+		for(int id=0; id<newItems.size(); id++) {
+			items.add(newItems.getItem(id));
+			supports.add(newItems.getSupport(id));
+		}
+
+		int[] supportArray = new int[supports.size()];
+		for(int i=0; i<supportArray.length; i++) {
+			supportArray[i] = supports.get(i);
+		}
+		return new ItemDictionary(items.toArray(new String[items.size()]), supportArray);
+	}
+
+	/**
+	 * Runs the mapreduce job that adds the counts of all items in the new transactions to the counts of the previous run.
+	 * Infrequent items are counted too, since they can become frequent with a later batch.
+	 * @param conf Hadoop configuration variable.
+	 * @param input Directory of the new transactions.
+	 * @param oldCounts Directory of the counts of the previous run, null if there is none.
+	 * @param output Output directory.
+	 * @return The completed job.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws InterruptedException
+	 */
+	private static Job runItemCounts(Configuration conf, String input, Path oldCounts, Path output)
+	throws IOException, ClassNotFoundException, InterruptedException
+	{
+		Job job = Job.getInstance(conf, "Incremental_Item_Counts");
+		job.setJarByClass(IncrementalState.class);
+		job.getConfiguration().setInt("support", 1);
+		MultipleInputs.addInputPath(job, new Path(input), TextInputFormat.class, FPGrowthMain.ItemsMapper.class);
+		if(oldCounts != null) {
+			MultipleInputs.addInputPath(job, oldCounts, KeyValueTextInputFormat.class, ItemCountsMapper.class);
+		}
+		job.setCombinerClass(FPGrowthMain.ItemsCombiner.class);
+		job.setReducerClass(FPGrowthMain.ItemsReducer.class);
+		job.setOutputKeyClass(Text.class);
+		job.setOutputValueClass(IntWritable.class);
+		FileOutputFormat.setOutputPath(job, output);
+
+		job.waitForCompletion(true);
+		return job;
+	}
+
+	/**
+	 * Runs the mapreduce job that adds the paths of the new transactions to the paths of the previous run
+	 * and mines the base items that changed. The paths and frequent itemsets of the other base items are copied by the mappers.
+	 * @param conf Hadoop configuration variable.
+	 * @param input Directory of the new transactions.
+	 * @param rescan Directories of earlier transactions to find the paths of new items in.
+	 * @param previous Previous generation of the state, null if there is none.
+	 * @param output Output directory.
+	 * @return The completed job.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws InterruptedException
+	 */
+	private static Job runPathUpdate(Configuration conf, String input, List<String> rescan, Path previous, Path output)
+	throws IOException, ClassNotFoundException, InterruptedException
+	{
+		Job job = Job.getInstance(conf, "Incremental_Frequent_Itemsets_Generation");
+		job.setJarByClass(IncrementalState.class);
+		ItemDictionary.addToCache(job);
+		addToCache(job);
+
+		MultipleInputs.addInputPath(job, new Path(input), TextInputFormat.class, FPGrowthMain.OrderedItemsetMapper.class);
+		for(String dir : rescan) {
+			MultipleInputs.addInputPath(job, new Path(dir), TextInputFormat.class, NewItemPathsMapper.class);
+		}
+		if(previous != null) {
+			FileSystem fs = previous.getFileSystem(conf);
+			Path oldPaths = new Path(previous, "Mined/Paths");
+			Path oldItemsets = new Path(previous, "Mined/FreqItemsets");
+			if(fs.exists(oldPaths)) {
+				MultipleInputs.addInputPath(job, oldPaths, SequenceFileInputFormat.class, OldPathsMapper.class);
+			}
+			if(fs.exists(oldItemsets)) {
+				MultipleInputs.addInputPath(job, oldItemsets, SequenceFileInputFormat.class, OldItemsetsMapper.class);
+			}
+		}
+
+		job.setReducerClass(FPGrowthMain.FreqItemsetReducer.class);
+		job.setMapOutputKeyClass(IntWritable.class);
+		job.setMapOutputValueClass(ItemsetWritable.class);
+		job.setOutputKeyClass(IntWritable.class);
+		job.setOutputValueClass(ItemsetListWritable.class);
+		LazyOutputFormat.setOutputFormatClass(job, SequenceFileOutputFormat.class);
+		MultipleOutputs.addNamedOutput(job, ITEMSETS_OUTPUT, SequenceFileOutputFormat.class, IntWritable.class, ItemsetListWritable.class);
+		MultipleOutputs.addNamedOutput(job, PATHS_OUTPUT, SequenceFileOutputFormat.class, IntWritable.class, ItemsetListWritable.class);
+		if(conf.getBoolean("miningCosts", false)) {
+			MultipleOutputs.addNamedOutput(job, FPGrowthMain.FreqItemsetReducer.COSTS_OUTPUT, TextOutputFormat.class, Text.class, Text.class);
+		}
+		FileOutputFormat.setOutputPath(job, output);
+
+		job.waitForCompletion(true);
+		return job;
+	}
+
+	/**
+	 * Reads the counts written by the item count job.
+	 * @param countsDir Directory of the counts.
+	 * @param minSupport Minimum support level.
+	 * @return Support count of each frequent item.
+	 * @throws IOException
+	 */
+	private Map<String,Integer> readCounts(Path countsDir, int minSupport) throws IOException {
+		Map<String,Integer> counts = new HashMap<String,Integer>();
+		for(FileStatus part : this.fs.globStatus(new Path(countsDir, "part-*"))) {
+			Scanner scOutput = new Scanner(this.fs.open(part.getPath()), "UTF-8");
+			while(scOutput.hasNextLine()) {
+				String line = scOutput.nextLine();
+				int tab = line.lastIndexOf('\t');
+				int count = Integer.parseInt(line.substring(tab+1));
+				if(count >= minSupport) {
+					counts.put(line.substring(0, tab), count);
+				}
+			}
+			scOutput.close();
+		}
+		return counts;
+	}
+
+	private List<String> readLines(Path path) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		Scanner scLines = new Scanner(this.fs.open(path), "UTF-8");
+		while(scLines.hasNextLine()) {
+			lines.add(scLines.nextLine());
+		}
+		scLines.close();
+		return lines;
+	}
+
+	private void writeLines(Path path, List<String> lines) throws IOException {
+		FSDataOutputStream out = this.fs.create(path, true);
+		for(String line : lines) {
+			out.write((line+"\n").getBytes(StandardCharsets.UTF_8));
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes the remap table and sets the configuration so that jobs created from it can load the table.
+	 * @param path File to write the table to.
+	 * @param remap New id of each old id, -1 if the item is no longer frequent.
+	 * @param changed Whether each base item has to be mined again.
+	 * @throws IOException
+	 */
+	private void publishRemapTable(Path path, int[] remap, boolean[] changed) throws IOException {
+		ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + 4*remap.length + changed.length);
+		table.putInt(MAGIC);
+		table.putInt(remap.length);
+		table.putInt(changed.length);
+		table.putInt(0);
+		for(int id : remap) {
+			table.putInt(id);
+		}
+		for(boolean c : changed) {
+			table.put((byte)(c ? 1 : 0));
+		}
+
+		FSDataOutputStream out = this.fs.create(path, true);
+		out.write(table.array());
+		out.close();
+		this.conf.set("remapTable", this.fs.makeQualified(path).toString());
+	}
+
+	/**
+	 * Adds the published remap table to the distributed cache of a job.
+	 * @param job Job whose tasks load the table.
+	 */
+	private static void addToCache(Job job) {
+		String table = job.getConfiguration().get("remapTable");
+		job.addCacheFile(URI.create(table + "#" + CACHE_LINK));
+	}
+
+	/**
+	 * Loads the remap table published by the driver.
+	 * @param conf Hadoop configuration variable being used
+	 * @return Buffer holding the table.
+	 * @throws IOException
+	 */
+	private static ByteBuffer loadRemapTable(Configuration conf) throws IOException {
+		ByteBuffer table = ItemsetUtils.mapCachedFile(conf, "remapTable", CACHE_LINK);
+		if(table.getInt(0) != MAGIC) {
+			throw new IOException("Not a remap table");
+		}
+		return table;
+	}
+
+	/**
+	 * Mapper that reads the counts of the previous run.
+	 */
+	public static class ItemCountsMapper
+	extends Mapper<Text,Text,Text,IntWritable>
+	{
+		private IntWritable count = new IntWritable();
+
+		public void map(Text item, Text countText, Context context)
+		throws IOException, InterruptedException
+		{
+			count.set(Integer.parseInt(countText.toString()));
+			context.write(item, count);
+		}
+	}
+
+	/**
+	 * Mapper that writes the paths of earlier transactions to the items that became frequent in this run.
+	 */
+	public static class NewItemPathsMapper extends FPGrowthMain.OrderedItemsetMapper {
+		public void setup(Context context) throws IOException {
+			super.setup(context);
+			minBaseItem = context.getConfiguration().getInt("firstNewItem", 0);
+		}
+	}
+
+	/**
+	 * Base of the mappers that read the state of the previous run and map it to the ids of this run.
+	 * Base items that have to be mined again are sent to the reducers, the others are copied to the output.
+	 */
+	public static abstract class OldStateMapper<VALUEOUT>
+	extends Mapper<IntWritable,ItemsetListWritable,IntWritable,VALUEOUT>
+	{
+		protected IntWritable baseItem = new IntWritable();
+		protected ItemsetListWritable itemsets = new ItemsetListWritable();
+		protected MultipleOutputs<IntWritable,VALUEOUT> outputs;
+		private ByteBuffer table;
+		private int numOldItems;
+
+		public void setup(Context context) throws IOException {
+			table = loadRemapTable(context.getConfiguration());
+			numOldItems = table.getInt(4);
+			outputs = new MultipleOutputs<IntWritable,VALUEOUT>(context);
+		}
+
+		protected void cleanup(Context context) throws IOException, InterruptedException {
+			outputs.close();
+		}
+
+		/**
+		 * Maps an old item id to its id in this run.
+		 * @param id Old id.
+		 * @return New id, -1 if the item is no longer frequent.
+		 */
+		protected int remap(int id) {
+			return table.getInt(HEADER_SIZE + 4*id);
+		}
+
+		/**
+		 * Determines if a base item has to be mined again.
+		 * @param id New id of the base item.
+		 * @return true if it is mined again, false if its state is copied.
+		 */
+		protected boolean isChanged(int id) {
+			return table.get(HEADER_SIZE + 4*numOldItems + id) != 0;
+		}
+
+		/**
+		 * Maps the items of an itemset to their ids in this run and drops the items that are no longer frequent.
+		 * Ids keep their order, so the itemset stays sorted.
+		 * @param itemset Itemset with old ids.
+		 * @return Itemset with new ids.
+		 */
+		protected Itemset remap(Itemset itemset) {
+			Itemset.Builder remapped = new Itemset.Builder(itemset.size());
+			for(int i=0; i<itemset.size(); i++) {
+				int id = remap(itemset.getItem(i));
+				if(id != -1) {
+					remapped.addItem(id);
+				}
+			}
+			return remapped.build(itemset.getSupport());
+		}
+	}
+
+	/**
+	 * Mapper of the paths of the previous run. Paths of base items that are mined again are sent to the reducers.
+	 */
+	public static class OldPathsMapper extends OldStateMapper<ItemsetWritable> {
+		private ItemsetWritable path = new ItemsetWritable();
+
+		public void map(IntWritable oldBaseItem, ItemsetListWritable paths, Context context)
+		throws IOException, InterruptedException
+		{
+			int id = remap(oldBaseItem.get());
+			if(id == -1) {
+				return;
+			}
+			baseItem.set(id);
+			List<Itemset> remapped = new ArrayList<Itemset>();
+			for(Itemset p : paths.get()) {
+				remapped.add(remap(p));
+			}
+
+			if(isChanged(id)) {
+				for(Itemset p : remapped) {
+					path.set(p);
+					context.write(baseItem, path);
+				}
+			}
+			else {
+				itemsets.set(remapped);
+				outputs.write(PATHS_OUTPUT, baseItem, itemsets, PATHS_PATH);
+			}
+		}
+	}
+
+	/**
+	 * Mapper of the frequent itemsets of the previous run. Itemsets of base items that are not mined again are copied.
+	 */
+	public static class OldItemsetsMapper extends OldStateMapper<ItemsetWritable> {
+		public void map(IntWritable oldBaseItem, ItemsetListWritable freqItemsets, Context context)
+		throws IOException, InterruptedException
+		{
+			int id = remap(oldBaseItem.get());
+			if(id == -1 || isChanged(id)) {
+				return;
+			}
+			baseItem.set(id);
+			List<Itemset> remapped = new ArrayList<Itemset>();
+			for(Itemset itemset : freqItemsets.get()) {
+				remapped.add(remap(itemset));
+			}
+			itemsets.set(remapped);
+			outputs.write(ITEMSETS_OUTPUT, baseItem, itemsets, ITEMSETS_PATH);
+		}
+	}
+}
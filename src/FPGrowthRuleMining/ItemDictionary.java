@@ -0,0 +1,382 @@
+//Dictionary of frequent items that maps each item to a dense integer id
+//The id of an item is its rank in the frequent pattern (0 is the most frequent item)
+//The dictionary is stored as one binary item table that tasks map read-only from the distributed cache
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Scanner;
+
+public class ItemDictionary {
+	//Item table layout: header, supports, name offsets, hash table of names to ids, UTF-8 names
+	private static final int MAGIC = 0x46504944;
+	private static final int HEADER_SIZE = 12;
+	//Name of the item table's link in the task's working directory
+	private static final String CACHE_LINK = "itemTable";
+
+	//Dictionary shared by all tasks that run in the same JVM
+	private static ItemDictionary cachedDictionary;
+	private static String cachedTable;
+
+	//Variables
+	private ByteBuffer table;
+	private int numItems;
+	private int tableSize;
+	private int supportsStart;
+	private int offsetsStart;
+	private int hashStart;
+	private int namesStart;
+	private String[] names;
+
+	//Constructors
+	/**
+	 * Creates a dictionary from frequent items that are already ordered by rank.
+	 * @param items Items ordered by the frequent pattern.
+	 * @param supports Support count of each item.
+	 */
+	public ItemDictionary(String[] items, int[] supports) {
+		byte[][] itemBytes = new byte[items.length][];
+		int namesLength = 0;
+		for(int i=0; i<items.length; i++) {
+			itemBytes[i] = items[i].getBytes(StandardCharsets.UTF_8);
+			namesLength += itemBytes[i].length;
+		}
+		int tableSize = Integer.highestOneBit(Math.max(items.length, 1)*2-1)*2;
+
+		//Header
+		ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + 4*items.length + 4*(items.length+1) + 4*tableSize + namesLength);
+		table.putInt(MAGIC);
+		table.putInt(items.length);
+		table.putInt(tableSize);
+
+		//Supports and name offsets
+		for(int support : supports) {
+			table.putInt(support);
+		}
+		int offset = 0;
+		for(byte[] name : itemBytes) {
+			table.putInt(offset);
+			offset += name.length;
+		}
+		table.putInt(offset);
+
+		//Hash table of names, slots hold the id plus one so that 0 is empty
+		int hashStart = table.position();
+		int mask = tableSize-1;
+		for(int i=0; i<items.length; i++) {
+			int slot = hash(itemBytes[i], 0, itemBytes[i].length) & mask;
+			while(table.getInt(hashStart + 4*slot) != 0) {
+				slot = (slot+1) & mask;
+			}
+			table.putInt(hashStart + 4*slot, i+1);
+		}
+		table.position(hashStart + 4*tableSize);
+
+		//Names
+		for(byte[] name : itemBytes) {
+			table.put(name);
+		}
+		init(table);
+		this.names = Arrays.copyOf(items, items.length);
+	}
+
+	/**
+	 * Creates a dictionary from an item table.
+	 * @param table Buffer holding the item table.
+	 * @throws IOException If the buffer is not an item table.
+	 */
+	private ItemDictionary(ByteBuffer table) throws IOException {
+		if(table.getInt(0) != MAGIC) {
+			throw new IOException("Not an item table");
+		}
+		init(table);
+		this.names = new String[this.numItems];
+	}
+
+	private void init(ByteBuffer table) {
+		this.table = table;
+		this.numItems = table.getInt(4);
+		this.tableSize = table.getInt(8);
+		this.supportsStart = HEADER_SIZE;
+		this.offsetsStart = this.supportsStart + 4*this.numItems;
+		this.hashStart = this.offsetsStart + 4*(this.numItems+1);
+		this.namesStart = this.hashStart + 4*this.tableSize;
+	}
+
+	//Methods
+	/**
+	 * Reads the frequent items written by the first map reduce job and ranks them by support.
+	 * @param conf Hadoop configuration variable being used
+	 * @param outputDir Directory of where the frequent items were written to
+	 * @return Dictionary of the frequent items.
+	 * @throws IOException
+	 */
+	public static ItemDictionary read(Configuration conf, String outputDir) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<Integer> counts = new ArrayList<Integer>();
+		FileSystem fs = FileSystem.get(conf);
+		String base = outputDir + "/part-r-";
+		int part = 0;
+
+		String partString = ""+part;
+		String file = base + (("00000"+(partString)).substring(partString.length()));
+		Path path =  new Path(file);
+		//Read all files
+		do {
+			Scanner scOutput = new Scanner(fs.open(path), "UTF-8");
+			while(scOutput.hasNextLine()) {
+				String line = scOutput.nextLine();
+				int tab = line.lastIndexOf('\t');
+				names.add(line.substring(0, tab));
+				counts.add(Integer.parseInt(line.substring(tab+1)));
+			}
+			scOutput.close();
+
+			//Next file
+			part++;
+			partString = ""+part;
+			file = base + (("00000"+(partString)).substring(partString.length()));
+			path =  new Path(file);
+		}while(fs.exists(path));
+		return rank(names, counts);
+	}
+
+	/**
+	 * Ranks frequent items by support. Items with equal support are ordered by their name
+	 * so that every task assigns the same ids.
+	 * @param names Frequent items.
+	 * @param counts Support count of each item.
+	 * @return Dictionary of the frequent items.
+	 */
+	public static ItemDictionary rank(final List<String> names, final List<Integer> counts) {
+		Integer[] order = new Integer[names.size()];
+		for(int i=0; i<order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int cmp = Integer.compare(counts.get(b), counts.get(a));
+				return cmp != 0 ? cmp : names.get(a).compareTo(names.get(b));
+			}
+		});
+
+		String[] items = new String[order.length];
+		int[] supports = new int[order.length];
+		for(int i=0; i<order.length; i++) {
+			items[i] = names.get(order[i]);
+			supports[i] = counts.get(order[i]);
+		}
+		return new ItemDictionary(items, supports);
+	}
+
+	/**
+	 * Writes the item table of this dictionary to a file and sets the configuration
+	 * so that jobs created from it can load the dictionary.
+	 * @param conf Hadoop configuration variable being used
+	 * @param path File to write the item table to.
+	 * @throws IOException
+	 */
+	public void publish(Configuration conf, Path path) throws IOException {
+		FileSystem fs = path.getFileSystem(conf);
+		FSDataOutputStream out = fs.create(path, true);
+		out.write(this.table.array(), 0, this.table.capacity());
+		out.close();
+
+		//The modification time tells tables apart when an output directory is reused
+		Path qualified = fs.makeQualified(path);
+		conf.set("itemTable", qualified.toString());
+		conf.setLong("itemTableTime", fs.getFileStatus(qualified).getModificationTime());
+	}
+
+	/**
+	 * Adds the published item table to the distributed cache of a job.
+	 * @param job Job whose tasks load the dictionary.
+	 * @throws IOException
+	 */
+	public static void addToCache(Job job) throws IOException {
+		String table = job.getConfiguration().get("itemTable");
+		job.addCacheFile(URI.create(table + "#" + CACHE_LINK));
+	}
+
+	/**
+	 * Loads the dictionary published by the driver. The item table is mapped read-only from the
+	 * distributed cache, and the dictionary is shared by every task that runs in the same JVM.
+	 * @param conf Hadoop configuration variable being used
+	 * @return Dictionary of the frequent items.
+	 * @throws IOException
+	 */
+	public static synchronized ItemDictionary load(Configuration conf) throws IOException {
+		String table = conf.get("itemTable") + "@" + conf.getLong("itemTableTime", 0);
+		if(table.equals(cachedTable)) {
+			return cachedDictionary;
+		}
+
+		ByteBuffer buffer = ItemsetUtils.mapCachedFile(conf, "itemTable", CACHE_LINK);
+		cachedDictionary = new ItemDictionary(buffer);
+		cachedTable = table;
+		return cachedDictionary;
+	}
+
+	/**
+	 * Reads a dictionary from an item table that was published before.
+	 * @param conf Hadoop configuration variable being used
+	 * @param path File holding the item table.
+	 * @return Dictionary of the frequent items.
+	 * @throws IOException
+	 */
+	public static ItemDictionary readTable(Configuration conf, Path path) throws IOException {
+		return new ItemDictionary(ItemsetUtils.readFile(conf, path));
+	}
+
+	/**
+	 * Returns the dictionary of the items that are frequent at a higher support.
+	 * Items are ranked by support, so they are the first items and keep their ids.
+	 * @param minSupport Minimum support level, at least the one of this dictionary.
+	 * @return Dictionary of the frequent items.
+	 */
+	public ItemDictionary truncate(int minSupport) {
+		int size = 0;
+		while(size < this.numItems && getSupport(size) >= minSupport) {
+			size++;
+		}
+		String[] items = new String[size];
+		int[] supports = new int[size];
+		for(int id=0; id<size; id++) {
+			items[id] = getItem(id);
+			supports[id] = getSupport(id);
+		}
+		return new ItemDictionary(items, supports);
+	}
+
+	/**
+	 * Returns the number of frequent items.
+	 * @return Number of items in the dictionary.
+	 */
+	public int size() {
+		return this.numItems;
+	}
+
+	/**
+	 * Returns the id of an item.
+	 * @param item The item to look up.
+	 * @return The id of the item, -1 if the item is not frequent.
+	 */
+	public int getId(String item) {
+		byte[] bytes = item.getBytes(StandardCharsets.UTF_8);
+		return getId(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Returns the id of an item given its UTF-8 bytes.
+	 * @param bytes Array holding the item.
+	 * @param start Start of the item in the array.
+	 * @param length Number of bytes of the item.
+	 * @return The id of the item, -1 if the item is not frequent.
+	 */
+	public int getId(byte[] bytes, int start, int length) {
+		int mask = this.tableSize-1;
+		int entry;
+		for(int slot = hash(bytes, start, length) & mask; (entry = this.table.getInt(this.hashStart + 4*slot)) != 0; slot = (slot+1) & mask) {
+			int id = entry-1;
+			int nameStart = this.table.getInt(this.offsetsStart + 4*id);
+			int nameEnd = this.table.getInt(this.offsetsStart + 4*(id+1));
+			if(nameEnd-nameStart != length) {
+				continue;
+			}
+			int i = 0;
+			while(i < length && this.table.get(this.namesStart + nameStart + i) == bytes[start+i]) {
+				i++;
+			}
+			if(i == length) {
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the item with the given id.
+	 * @param id Id of the item.
+	 * @return The item.
+	 */
+	public String getItem(int id) {
+		String name = this.names[id];
+		if(name == null) {
+			int nameStart = this.table.getInt(this.offsetsStart + 4*id);
+			int nameEnd = this.table.getInt(this.offsetsStart + 4*(id+1));
+			byte[] bytes = new byte[nameEnd-nameStart];
+			for(int i=0; i<bytes.length; i++) {
+				bytes[i] = this.table.get(this.namesStart + nameStart + i);
+			}
+			name = new String(bytes, StandardCharsets.UTF_8);
+			this.names[id] = name;
+		}
+		return name;
+	}
+
+	/**
+	 * Returns the support count of the item with the given id.
+	 * @param id Id of the item.
+	 * @return Support count of the item.
+	 */
+	public int getSupport(int id) {
+		return this.table.getInt(this.supportsStart + 4*id);
+	}
+
+	/**
+	 * Encodes a transaction as the sorted ids of its frequent items.
+	 * Since ids are ranks, the result is ordered by the frequent pattern.
+	 * Infrequent and duplicate items are dropped.
+	 * @param transaction Items in the transaction.
+	 * @return Sorted array of item ids.
+	 */
+	public int[] encode(List<String> transaction) {
+		int[] encoded = new int[transaction.size()];
+		int size = 0;
+		for(String item : transaction) {
+			int id = getId(item);
+			if(id != -1) {
+				encoded[size++] = id;
+			}
+		}
+		Arrays.sort(encoded, 0, size);
+
+		//Remove duplicates
+		int unique = 0;
+		for(int i=0; i<size; i++) {
+			if(unique == 0 || encoded[unique-1] != encoded[i]) {
+				encoded[unique++] = encoded[i];
+			}
+		}
+		return Arrays.copyOf(encoded, unique);
+	}
+
+	/**
+	 * Hashes the UTF-8 bytes of an item (FNV-1a).
+	 * @param bytes Array holding the item.
+	 * @param start Start of the item in the array.
+	 * @param length Number of bytes of the item.
+	 * @return Hash of the item.
+	 */
+	private static int hash(byte[] bytes, int start, int length) {
+		int h = 0x811C9DC5;
+		for(int i=start; i<start+length; i++) {
+			h = (h ^ bytes[i]) * 0x01000193;
+		}
+		return h ^ (h >>> 16);
+	}
+}
@@ -4,28 +4,49 @@
 
 package FPGrowthRuleMining;
 
-import java.util.List;
-import java.util.ArrayList;
 import java.util.Arrays;
 
-import com.google.common.collect.Lists;
-
 public class Itemset implements Comparable<Itemset>{
 	//Variables
-	private List<String> itemset;
+	//Item ids sorted in ascending order, which is the frequent pattern order. The items of an itemset never change
+	private final int[] itemset;
+	//Hash of the items, 0 until it is computed
+	private int hash;
 	private int supportCount;
 	
 	//Constructors
-	public Itemset() {
-		itemset = new ArrayList<String>();
-		this.supportCount = -1;
-	}
-	
-	//Copy constructor
+	//Copy constructor, the items are shared since they never change
 	public Itemset(Itemset i) {
-		this.itemset = new ArrayList<String>(i.itemset);
+		this.itemset = i.itemset;
+		this.hash = i.hash;
 		this.supportCount = i.supportCount;
 	}
+	
+	/**
+	 * Creates an itemset containing the given item ids.
+	 * @param items Ids of the items sorted in ascending order.
+	 * @param support Support count of the itemset.
+	 */
+	public Itemset(int[] items, int support) {
+		this(items, items.length, support);
+	}
+	
+	/**
+	 * Creates an itemset containing the first item ids of an array.
+	 * @param items Ids of the items sorted in ascending order.
+	 * @param length Number of items of the array in the itemset.
+	 * @param support Support count of the itemset.
+	 */
+	public Itemset(int[] items, int length, int support) {
+		this(Arrays.copyOf(items, length));
+		this.supportCount = support;
+	}
+	
+	//Takes the array of items without copying it
+	private Itemset(int[] items) {
+		this.itemset = items;
+		this.supportCount = -1;
+	}
 
 	//Methods
 	/**
@@ -33,31 +54,40 @@ public class Itemset implements Comparable<Itemset>{
 	 * @return
 	 */
 	public int size() {
-		return itemset.size();
+		return this.itemset.length;
 	}
 	
 	/**
-	 * Returns the underlying itemset.
-	 * @return List of Strings
+	 * Returns a copy of the item ids in the set.
+	 * @return Array of item ids
 	 */
-	public List<String> getItemset(){
-		return this.itemset;
+	public int[] getItemset(){
+		return this.itemset.clone();
+	}
+	
+	/**
+	 * Returns the item at the given position in the set.
+	 * @param index Position of the item.
+	 * @return Item id at the position.
+	 */
+	public int getItem(int index) {
+		return this.itemset[index];
 	}
 	
 	/**
 	 * Returns the first item in the underlying itemset.
 	 * @return First item in the list.
 	 */
-	public String getFirstItem() {
-		return this.itemset.get(0);
+	public int getFirstItem() {
+		return this.itemset[0];
 	}
 	
 	/**
-	 * Returns the first item in the underlying itemset.
+	 * Returns the last item in the underlying itemset.
 	 * @return Last item in the list.
 	 */
-	public String getLastItem() {
-		return this.itemset.get(this.itemset.size()-1);
+	public int getLastItem() {
+		return this.itemset[this.itemset.length-1];
 	}
 	
 	/**
@@ -84,115 +114,205 @@ public class Itemset implements Comparable<Itemset>{
 	}
 	
 	/**
-	 * Adds a string to the set.
-	 * @param i Item to add to the itemset.
+	 * Returns a new itemset with an item in front of the items of this itemset.
+	 * The recursion of the mining extends its base itemset with smaller items, so the new itemset stays sorted
+	 * and its array is allocated at its final size.
+	 * @param item Item smaller than the first item of this itemset.
+	 * @param support Support count of the new itemset.
+	 * @return Extended itemset.
 	 */
-	public void addItem(String i) {
-		itemset.add(i);
+	public Itemset withFirstItem(int item, int support) {
+		int[] items = new int[this.itemset.length+1];
+		items[0] = item;
+		System.arraycopy(this.itemset, 0, items, 1, this.itemset.length);
+		Itemset extended = new Itemset(items);
+		extended.supportCount = support;
+		return extended;
 	}
 	
 	/**
-	 * Adds item to the back of the set.
-	 * @param i Item to add
+	 * Determines if the underlying itemset contains an item.
+	 * @param item The item to check.
+	 * @return true if the List contains the item, false if not.
 	 */
-	public void addItemToFront(String i) {
-		this.itemset.add(0, i);
+	public boolean contains(int item) {
+		return Arrays.binarySearch(this.itemset, item) >= 0;
 	}
 	
 	/**
-	 * Adds all elements of the given itemset to this itemset.
-	 * @param itemset Itemset to add to this.
-	 * @deprecated
+	 * Checks if this itemset is a subset of the given itemset.
+	 * Both itemsets are sorted, so they are merged in one pass.
+	 * @param itemset
+	 * @return
 	 */
-	public void addSet(Itemset itemset) {
-		for(String i : itemset.itemset) {
-			this.itemset.add(i);
+	public boolean isSubset(Itemset itemset) {
+		int[] items = itemset.itemset;
+		if(this.itemset.length > items.length) {
+			return false;
 		}
+		int j = 0;
+		for(int i=0; i<this.itemset.length; i++) {
+			int item = this.itemset[i];
+			while(j < items.length && items[j] < item) {
+				j++;
+			}
+			if(j == items.length || items[j] != item) {
+				return false;
+			}
+			j++;
+		}
+		return true;
 	}
 	
 	/**
-	 * Removes the last item in the itemset
+	 * Checks for equality of the underlying sets. The support counts are not compared.
+	 * @param o Object to compare.
+	 * @return true if the other object is an itemset with the same items, false if not.
 	 */
-	public void removeLastItem() {
-		this.itemset.remove(this.itemset.size()-1);
+	@Override
+	public boolean equals(Object o) {
+		if(this == o) {
+			return true;
+		}
+		if(!(o instanceof Itemset)) {
+			return false;
+		}
+		Itemset i = (Itemset)o;
+		if(this.itemset.length != i.itemset.length || (this.hash != 0 && i.hash != 0 && this.hash != i.hash)) {
+			return false;
+		}
+		return Arrays.equals(this.itemset, i.itemset);
 	}
 	
 	/**
-	 * Only used for comparing results
+	 * Hashes the items of the set. The hash is computed once, and the support index stores itemsets by it.
+	 * @return Hash of the items.
 	 */
-	public void sortItemset() {
-		String[] sortedList = new String[this.itemset.size()];
-		this.itemset.toArray(sortedList);
-		Arrays.sort(sortedList);
-		this.itemset = new ArrayList<String>();
-		for(String s : sortedList) {
-			this.itemset.add(s);
+	@Override
+	public int hashCode() {
+		int h = this.hash;
+		if(h == 0) {
+			h = this.itemset.length;
+			for(int item : this.itemset) {
+				h = (h + item) * 0x9E3779B9;
+			}
+			h ^= h >>> 16;
+			this.hash = h;
 		}
+		return h;
 	}
-	
+
+	@Override
 	/**
-	 * Reverses the order of the underlying itemset.
-	 * @deprecated
+	 * Compares two itemsets by support count.
 	 */
-	public void reverseSet() {
-		this.itemset = Lists.reverse(this.itemset);
+	public int compareTo(Itemset i) {
+		return Integer.compare(i.supportCount, this.supportCount);
 	}
 	
+	@Override
 	/**
-	 * Determines if the underlying itemset contains an item.
-	 * @param item The item to check.
-	 * @return true if the List contains the item, false if not.
+	 * String representation of the itemset: [0, 1, 2, ..., n]
 	 */
-	public boolean contains(String item) {
-		for(String i : this.itemset) {
-			if(i.equals(item)) {
-				return true;
+	public String toString() {
+		StringBuilder out = new StringBuilder(4*this.itemset.length+2).append('[');
+		for (int i=0; i<this.itemset.length; i++) {
+			if(i > 0) {
+				out.append(", ");
 			}
+			out.append(this.itemset[i]);
 		}
-		return false;
-	}
-	
-	/**
-	 * Checks if this itemset is a subset of the given itemset.
-	 * @param itemset
-	 * @return
-	 */
-	public boolean isSubset(Itemset itemset) {
-		return itemset.itemset.containsAll(this.itemset);
+		return out.append(']').toString();
 	}
 	
 	/**
-	 * Checks for equality of the underlying sets.
-	 * @param i Itemset to compare.
-	 * @return true if the subset of this itemset equals the subset of the other. false if not.
+	 * String representation of the itemset with the item ids decoded: [a, b, c, ..., n]
+	 * @param dictionary Dictionary that assigned the item ids.
+	 * @return Decoded string representation.
 	 */
-	public boolean equals(Itemset i) {
-		return this.isSubset(i) && i.isSubset(this);
-	}
-
-	@Override
-	/**
-	 * Compares two itemsets by support count.
-	 */
-	public int compareTo(Itemset i) {
-		return new Integer(i.supportCount).compareTo(new Integer(this.supportCount));
+	public String toString(ItemDictionary dictionary) {
+		StringBuilder out = new StringBuilder().append('[');
+		for (int i=0; i<this.itemset.length; i++) {
+			if(i > 0) {
+				out.append(", ");
+			}
+			out.append(dictionary.getItem(this.itemset[i]));
+		}
+		return out.append(']').toString();
 	}
 	
-	@Override
 	/**
-	 * String representation of the itemset: [0, 1, 2, ..., n]
+	 * Builder that collects the items of an itemset in ascending order.
+	 * A builder can be reused after building, so the recursions that grow and shrink a path only allocate the itemsets they keep.
 	 */
-	public String toString() {
-		String out = "[";
-		if(this.itemset.isEmpty()) {
-			out += "]";
-			return out;
+	public static class Builder {
+		//Variables
+		private int[] items;
+		private int size;
+		
+		//Constructors
+		public Builder() {
+			this(8);
+		}
+		
+		/**
+		 * Creates an empty builder.
+		 * @param capacity Expected number of items.
+		 */
+		public Builder(int capacity) {
+			this.items = new int[Math.max(capacity, 1)];
+			this.size = 0;
+		}
+		
+		//Methods
+		/**
+		 * Adds an item after the items added so far.
+		 * @param item Item larger than the items added so far.
+		 * @return This builder.
+		 */
+		public Builder addItem(int item) {
+			if(this.size == this.items.length) {
+				this.items = Arrays.copyOf(this.items, this.size*2);
+			}
+			this.items[this.size++] = item;
+			return this;
+		}
+		
+		/**
+		 * Removes the last item added.
+		 * @return This builder.
+		 */
+		public Builder removeLastItem() {
+			this.size--;
+			return this;
+		}
+		
+		/**
+		 * Removes all items.
+		 * @return This builder.
+		 */
+		public Builder clear() {
+			this.size = 0;
+			return this;
+		}
+		
+		/**
+		 * Returns the number of items added.
+		 * @return Number of items.
+		 */
+		public int size() {
+			return this.size;
 		}
-		for (String i : itemset) {
-			out += i + ", ";
+		
+		/**
+		 * Creates an itemset of the items added so far. The builder keeps its items.
+		 * @param support Support count of the itemset.
+		 * @return New itemset.
+		 */
+		public Itemset build(int support) {
+			Itemset itemset = new Itemset(Arrays.copyOf(this.items, this.size));
+			itemset.supportCount = support;
+			return itemset;
 		}
-		out = out.substring(0, out.length()-2);
-		out += "]";
-		return out;
 	}
 }
@@ -0,0 +1,67 @@
+//Binary form of a list of frequent itemsets: the number of itemsets followed by each itemset as in ItemsetWritable
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ItemsetListWritable implements Writable {
+	//Variables
+	private List<Itemset> itemsets;
+	private ItemsetWritable reader;
+	
+	//Constructors
+	public ItemsetListWritable() {
+		this.itemsets = new ArrayList<Itemset>();
+		this.reader = new ItemsetWritable();
+	}
+	
+	//Methods
+	/**
+	 * Sets the list of itemsets to write.
+	 * @param itemsets Itemsets to write.
+	 */
+	public void set(List<Itemset> itemsets) {
+		this.itemsets = itemsets;
+	}
+	
+	/**
+	 * Returns the itemsets that were read.
+	 * @return List of itemsets.
+	 */
+	public List<Itemset> get() {
+		return this.itemsets;
+	}
+	
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, this.itemsets.size());
+		for(Itemset itemset : this.itemsets) {
+			ItemsetWritable.write(out, itemset);
+		}
+	}
+	
+	public void readFields(DataInput in) throws IOException {
+		int size = WritableUtils.readVInt(in);
+		this.itemsets = new ArrayList<Itemset>(size);
+		for(int i=0; i<size; i++) {
+			this.reader.readFields(in);
+			this.itemsets.add(this.reader.get());
+		}
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		for(Itemset itemset : this.itemsets) {
+			out.append(itemset.toString()).append(':').append(itemset.getSupport()).append(';');
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,116 @@
+//Prefix tree of closed or maximal itemsets that are already found, used to check if an itemset has a superset among them
+//This is the CFI tree of FPClose and the MFI tree of FPMax: itemsets are paths in frequent pattern order,
+//the nodes of an item are linked from a header table and the count of a node is the largest support of the itemsets through it
+
+package FPGrowthRuleMining;
+
+import java.util.Arrays;
+
+public class ItemsetTree {
+	//Variables
+	private FPTreeNode root;
+	private FPTreeNode[] headerTable;
+	private int size;
+
+	//Constructors
+	public ItemsetTree() {
+		this.root = new FPTreeNode();
+		this.headerTable = new FPTreeNode[16];
+		this.size = 0;
+	}
+
+	//Methods
+	/**
+	 * Returns the number of itemsets added to the tree.
+	 * @return Number of itemsets.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Adds an itemset to the tree.
+	 * @param itemset Itemset sorted by item id.
+	 */
+	public void add(Itemset itemset) {
+		int support = itemset.getSupport();
+		FPTreeNode node = this.root;
+		for(int i=0; i<itemset.size(); i++) {
+			int item = itemset.getItem(i);
+			FPTreeNode child = node.getChild(item);
+			if(child == null) {
+				if(item >= this.headerTable.length) {
+					this.headerTable = Arrays.copyOf(this.headerTable, Math.max(item+1, this.headerTable.length*2));
+				}
+				child = node.addChild(item, support);
+				child.setNext(this.headerTable[item]);
+				this.headerTable[item] = child;
+			}
+			else if(child.getCount() < support) {
+				child.setCount(support);
+			}
+			node = child;
+		}
+		this.size++;
+	}
+
+	/**
+	 * Determines if the tree has a superset of an itemset with at least the given support.
+	 * Every node of the itemset's last item is a candidate, and the candidate's path to the root must contain the other items.
+	 * @param itemset Itemset sorted by item id, not empty.
+	 * @param minSupport Support that the superset must have at least, 0 for any superset.
+	 * @return true if a superset was found, false if not.
+	 */
+	public boolean hasSuperset(Itemset itemset, int minSupport) {
+		int lastItem = itemset.getLastItem();
+		if(lastItem >= this.headerTable.length) {
+			return false;
+		}
+		for(FPTreeNode node = this.headerTable[lastItem]; node != null; node = node.getNext()) {
+			if(node.getCount() >= minSupport && pathContains(node, itemset)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the largest support of the supersets of an itemset in the tree.
+	 * If the tree holds the closed itemsets, this is the support of the itemset's closure, which is the itemset's own support.
+	 * @param itemset Itemset sorted by item id, not empty.
+	 * @return Largest support of a superset, -1 if the tree has no superset.
+	 */
+	public int getSupersetSupport(Itemset itemset) {
+		int lastItem = itemset.getLastItem();
+		int support = -1;
+		if(lastItem >= this.headerTable.length) {
+			return support;
+		}
+		for(FPTreeNode node = this.headerTable[lastItem]; node != null; node = node.getNext()) {
+			if(node.getCount() > support && pathContains(node, itemset)) {
+				support = node.getCount();
+			}
+		}
+		return support;
+	}
+
+	/**
+	 * Determines if the path from the root to a node of an itemset's last item contains the other items of the itemset.
+	 * @param node Node of the itemset's last item.
+	 * @param itemset Itemset sorted by item id, not empty.
+	 * @return true if the path contains the itemset, false if not.
+	 */
+	private static boolean pathContains(FPTreeNode node, Itemset itemset) {
+		//The path is read from the node up, so the items of the itemset are matched from the end
+		int i = itemset.size()-2;
+		for(FPTreeNode n = node.getParent(); i >= 0 && n.hasParent(); n = n.getParent()) {
+			if(n.getItem() == itemset.getItem(i)) {
+				i--;
+			}
+			else if(n.getItem() < itemset.getItem(i)) {
+				break;
+			}
+		}
+		return i < 0;
+	}
+}
@@ -5,17 +5,37 @@
 package FPGrowthRuleMining;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.mapreduce.Mapper.Context;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ItemsetUtils {
+	//Lexicographic order of item id arrays of equal length
+	private static final Comparator<int[]> LEXICOGRAPHIC = new Comparator<int[]>() {
+		public int compare(int[] a, int[] b) {
+			for(int i=0; i<a.length; i++) {
+				if(a[i] != b[i]) {
+					return Integer.compare(a[i], b[i]);
+				}
+			}
+			return 0;
+		}
+	};
 	
 	/**
 	 * Reads a string representation of an itemset and returns the itemset object.
@@ -24,108 +44,36 @@ public class ItemsetUtils {
 	 * @return Itemset object read in
 	 */
 	public static Itemset readItemset(String items) {
-		Itemset itemset = new Itemset();
+		Itemset.Builder itemset = new Itemset.Builder();
 		items = items.replace("[", "");
 		items = items.replace("]", "");
 		
 		String[] itemsArr = items.split(", ");
 		for (int i = 0; i < itemsArr.length; i++) {
-			itemset.addItem(itemsArr[i]);
+			itemset.addItem(Integer.parseInt(itemsArr[i]));
 		}
-		return itemset;
-	}
-	
-	/**
-	 * Returns the list of all frequent items from the output directory of the first map reduce job.
-	 * @param conf Hadoop configuration variable being used
-	 * @param outputDir Directory of where the frequent items were written to
-	 * @return List of frequent items as Itemsets with one item
-	 * @throws IOException 
-	 */
-	public static List<Itemset> getFreqItems(Configuration conf, String outputDir) throws IOException {
-		List<Itemset> itemsets = new ArrayList<Itemset>();
-		FileSystem fs = FileSystem.get(conf);
-		String base = outputDir + "/part-r-";
-		int part = 0;
-		
-		String partString = ""+part;
-		String file = base + (("00000"+(partString)).substring(partString.length()));
-		Path path =  new Path(file);
-		//Read all files
-		do {
-			//Read itemsets
-			Scanner scOutput = new Scanner(fs.open(path));
-			while(scOutput.hasNextLine()) {
-				String[] keyValue = scOutput.nextLine().split("\t");
-				Itemset freq1Itemset = readItemset(keyValue[0]);
-				freq1Itemset.setSupport(Integer.parseInt(keyValue[1]));
-				itemsets.add(freq1Itemset);
-			}
-			scOutput.close();
-			
-			//Next file
-			part++;
-			partString = ""+part;
-			file = base + (("00000"+(partString)).substring(partString.length()));
-			path =  new Path(file);
-		}while(fs.exists(path));
-
-		return itemsets;
+		return itemset.build(-1);
 	}
 	
 	/**
-	 * Uses the C[k] = F[k-1] x F[1] method described in https://chih-ling-hsu.github.io/2017/03/25/apriori
-	 * This method makes use of the apriori principle: if an itemset if frequent, all its subsets are frequent. 
-	 * Conversely, if an itemset is infrequent, all its supersets will also be infrequent.
-	 * This method only uses this principle by using only frequent itemsets.
-	 * @deprecated This method is inefficient.
-	 * @param prevFreqItemsets List of all the frequent (k-1) itemsets
-	 * @param context Prefix of the output directory that previous frequent itemsets were written to, used to find frequent-1-itemsets
-	 * @return List of frequent itemsets.
+	 * Reads the items of a transaction from a line of the dataset.
+	 * @param line Line of the dataset, fields separated by whitespace.
+	 * @param offset Number of leading fields that are skipped before the items.
+	 * @return Items in the transaction.
 	 */
-	@SuppressWarnings("rawtypes")
-	public static List<Itemset> genCandidateKItemsets(List<Itemset> prevFreqItemsets, Context context){
-		//Variables
-		List<Itemset> candidates        = new ArrayList<Itemset>();
-		List<Itemset> frequent1Itemsets = new ArrayList<Itemset>();
-		
-		//Get the frequent-1-itemsets
-		String frequent1ItemsetsDir = context.getConfiguration().get("fs.default.name") 
-				+ context.getConfiguration().get("outputDirPrefix") 
-				+ "1" 
-				+ "/part-r-00000";
-		
-		//Read file
-		try {
-			Path path =  new Path(frequent1ItemsetsDir);
-			FileSystem fs = FileSystem.get(context.getConfiguration());
-			Scanner scOutput = new Scanner(fs.open(path));
-			while(scOutput.hasNextLine()) {
-				String[] keyValue = scOutput.nextLine().split("\t");
-				Itemset freq1Itemset = readItemset(keyValue[0]);
-				freq1Itemset.setSupport(Integer.parseInt(keyValue[1]));
-				frequent1Itemsets.add(freq1Itemset);
-			}
-			scOutput.close();
-		}
-		catch(Exception e) {
-			e.printStackTrace(System.out);
+	public static List<String> readTransaction(String line, int offset) {
+		List<String> transaction = new ArrayList<String>();
+		Scanner scLine = new Scanner(line);
+		//Skip data
+		for(int i=0; i<offset; i++) {
+			scLine.next();
 		}
 		
-		//Combine F[k-1] with F[1] - only combine if a not contains b
-		for(int i=0; i<prevFreqItemsets.size(); i++) {
-			for(int j=0; j<frequent1Itemsets.size(); j++) {
-				if(!frequent1Itemsets.get(j).isSubset(prevFreqItemsets.get(i))) {
-					//might have problems
-					Itemset candidate = new Itemset(prevFreqItemsets.get(i));
-					candidate.addSet(frequent1Itemsets.get(j));
-					candidates.add(candidate);
-				}
-			}
+		while(scLine.hasNext()) {
+			transaction.add(scLine.next());
 		}
-		
-		//Output
-		return candidates;
+		scLine.close();
+		return transaction;
 	}
 	
 	/**
@@ -145,6 +93,68 @@ public class ItemsetUtils {
 		return -1;
 	}
 	
+	/**
+	 * Maps a file that the driver added to the distributed cache read-only.
+	 * If the task was not run through the distributed cache, the file is read from its file system instead.
+	 * @param conf Hadoop configuration variable being used
+	 * @param confKey Configuration key holding the path of the file.
+	 * @param link Name of the file's link in the task's working directory.
+	 * @return Buffer holding the file.
+	 * @throws IOException
+	 */
+	public static ByteBuffer mapCachedFile(Configuration conf, String confKey, String link) throws IOException {
+		File localFile = new File(link);
+		if(localFile.exists()) {
+			RandomAccessFile raf = new RandomAccessFile(localFile, "r");
+			try {
+				return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			}
+			finally {
+				raf.close();
+			}
+		}
+		return readFile(conf, new Path(conf.get(confKey)));
+	}
+	
+	/**
+	 * Reads a whole file into a heap buffer.
+	 * @param conf Hadoop configuration variable being used
+	 * @param path File to read.
+	 * @return Buffer holding the file.
+	 * @throws IOException
+	 */
+	public static ByteBuffer readFile(Configuration conf, Path path) throws IOException {
+		FileSystem fs = path.getFileSystem(conf);
+		byte[] bytes = new byte[(int)fs.getFileStatus(path).getLen()];
+		FSDataInputStream in = fs.open(path);
+		in.readFully(bytes);
+		in.close();
+		return ByteBuffer.wrap(bytes);
+	}
+	
+	/**
+	 * Creates an empty FP tree with the given storage.
+	 * @param storage "node" for a tree of FPTreeNode objects, or "heap", "direct" or "mapped" for an ArrayFPTree.
+	 * @return Empty FP tree.
+	 */
+	public static FPTree newFPTree(String storage) {
+		if(storage.equals("node")) {
+			return new NodeFPTree();
+		}
+		return new ArrayFPTree(ArrayFPTree.Storage.valueOf(storage.toUpperCase()));
+	}
+	
+	/**
+	 * Returns the group that an item is mined in when the items are split into groups.
+	 * Items are dealt to the groups in frequent pattern order so that each group gets a share of the frequent items.
+	 * @param item Id of the item.
+	 * @param numGroups Number of groups.
+	 * @return The group of the item.
+	 */
+	public static int getGroup(int item, int numGroups) {
+		return item % numGroups;
+	}
+	
 	/**
 	 * Reads a line of frequent itemsets found with a base item. 
 	 * @param line String containing all frequent itemsets.
@@ -165,156 +175,342 @@ public class ItemsetUtils {
 	}
 	
 	/**
-	 * Finds an itemset in a list of itemsets given the items that it should contain. This is to use the support count.
-	 * @param itemsets List of itemsets to search.
-	 * @param itemset Itemset containing the items specifying the itemset to find.
-	 * @return The itemset if it found it. Null if it wasn't found.
+	 * Constructs frequent itemsets by walking an itemset's conditional FP tree 
+	 * and projecting the conditional FP trees of the items in it.
+	 * This is called recursively until all frequent itemsets are found for the item.
+	 * @param frequentItemsets List of frequent itemsets that are found.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
 	 */
-	public static Itemset findItemset(List<Itemset> itemsets, Itemset itemset) {
-		for(Itemset i : itemsets) {
-			if(i.equals(itemset)) {
-				return i;
+	public static void constructFreqItemsets(List<Itemset> frequentItemsets, FPTree condTree, Itemset base, int minSupport) {
+		constructFreqItemsets(frequentItemsets, condTree, base, minSupport, (MiningStats)null);
+	}
+	
+	/**
+	 * Constructs the frequent itemsets of a conditional FP tree like constructFreqItemsets,
+	 * and adds every conditional FP tree that is projected on the way to the statistics.
+	 * @param frequentItemsets List of frequent itemsets that are found.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
+	 * @param stats Statistics of the mining, null to not keep any.
+	 */
+	public static void constructFreqItemsets(List<Itemset> frequentItemsets, FPTree condTree, Itemset base, int minSupport, MiningStats stats) {
+		constructFreqItemsets(collect(frequentItemsets), condTree, base, minSupport, stats);
+	}
+	
+	/**
+	 * Constructs the frequent itemsets of a conditional FP tree like constructFreqItemsets,
+	 * but hands each itemset to a visitor as soon as it is found instead of collecting them.
+	 * Only the conditional trees on the path of the recursion are kept, so the memory used
+	 * depends on the depth of the recursion and not on the number of itemsets.
+	 * @param visitor Visitor of the frequent itemsets that are found.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
+	 * @param stats Statistics of the mining, null to not keep any.
+	 * @throws E If the visitor throws it.
+	 */
+	public static <E extends Exception> void constructFreqItemsets(ItemsetVisitor<E> visitor, FPTree condTree, Itemset base, int minSupport, MiningStats stats) throws E {
+		for(int item = condTree.getMaxItem(); item >= 0; item--) {
+			int support = condTree.getSupport(item);
+			if(support < minSupport) {
+				continue;
+			}
+			Itemset freqItemset = base.withFirstItem(item, support);
+			visitor.visit(freqItemset);
+			FPTree itemCondTree = condTree.project(item, minSupport);
+			if(stats != null) {
+				stats.addCondTree(itemCondTree, freqItemset.size());
+			}
+			if(!itemCondTree.isEmpty()) {
+				constructFreqItemsets(visitor, itemCondTree, freqItemset, minSupport, stats);
 			}
 		}
-		return null;
 	}
 	
 	/**
-	 * Finds the list of items that are frequent in the given conditional pattern base.
-	 * @param condPattBase Conditional pattern base of the itemset.
-	 * @param support Minimum support level.
-	 * @return List of items that are frequent. In the form of a list of itemsets, where each itemset only contains 1 item.
+	 * Returns a visitor that adds the itemsets it visits to a list.
+	 * @param itemsets List to add to.
+	 * @return Visitor of the list.
 	 */
-	public static List<Itemset> findFList(List<Itemset> condPattBase, int support){
-		FPTreeNode fList = new FPTreeNode();
-		for(Itemset itemset : condPattBase) {
-			for(String item : itemset.getItemset()) {
-				fList.addChild(item, itemset.getSupport());
+	public static ItemsetVisitor<RuntimeException> collect(final List<Itemset> itemsets) {
+		return new ItemsetVisitor<RuntimeException>() {
+			public void visit(Itemset itemset) {
+				itemsets.add(itemset);
+			}
+		};
+	}
+	
+	/**
+	 * Constructs the frequent itemsets of a conditional FP tree like constructFreqItemsets,
+	 * but mines the branches of large trees as parallel tasks. The itemsets are found in the same order.
+	 * @param frequentItemsets List of frequent itemsets that are found.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
+	 * @param pool Pool that runs the tasks when this is not called from a task.
+	 */
+	public static void constructFreqItemsets(List<Itemset> frequentItemsets, FPTree condTree, Itemset base, int minSupport, ForkJoinPool pool) {
+		constructFreqItemsets(frequentItemsets, condTree, base, minSupport, pool, null);
+	}
+	
+	/**
+	 * Constructs the frequent itemsets of a conditional FP tree with parallel tasks,
+	 * and adds every conditional FP tree that the tasks project to the statistics.
+	 * @param frequentItemsets List of frequent itemsets that are found.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset to generate frequent itemsets from.
+	 * @param minSupport Minimum support level.
+	 * @param pool Pool that runs the tasks when this is not called from a task.
+	 * @param stats Statistics of the mining, null to not keep any.
+	 */
+	public static void constructFreqItemsets(List<Itemset> frequentItemsets, FPTree condTree, Itemset base, int minSupport, ForkJoinPool pool, MiningStats stats) {
+		FreqItemsetsTask task = new FreqItemsetsTask(condTree, base, minSupport, stats);
+		frequentItemsets.addAll(ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task));
+	}
+	
+	/**
+	 * Constructs the closed itemsets among the base itemset and its extensions (FPClose).
+	 * Itemsets with larger items are found first, so an itemset is closed if the tree of closed itemsets found so far
+	 * has no superset with the same support once its own extensions are mined.
+	 * A branch is pruned when a closed itemset with the same support contains the branch's itemset
+	 * and all items of its conditional tree, since no itemset in the branch can be closed then.
+	 * @param closedItemsets List of closed itemsets that are found.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset with its support.
+	 * @param minSupport Minimum support level.
+	 * @param closedTree Tree of the closed itemsets found so far.
+	 */
+	public static void constructClosedItemsets(List<Itemset> closedItemsets, FPTree condTree, Itemset base, int minSupport, ItemsetTree closedTree) {
+		for(int item = condTree.getMaxItem(); item >= 0; item--) {
+			int support = condTree.getSupport(item);
+			if(support < minSupport) {
+				continue;
+			}
+			Itemset freqItemset = base.withFirstItem(item, support);
+			FPTree itemCondTree = condTree.project(item, minSupport);
+			if(!closedTree.hasSuperset(addTreeItems(freqItemset, itemCondTree), support)) {
+				constructClosedItemsets(closedItemsets, itemCondTree, freqItemset, minSupport, closedTree);
 			}
 		}
 		
-		List<Itemset> freqList = new ArrayList<Itemset>();
-		for(FPTreeNode n : fList.getChildrenNodes()) {
-			if(n.getCount() >= support) {
-				Itemset i = new Itemset();
-				i.addItem(n.getItem());
-				i.setSupport(n.getCount());
-				freqList.add(i);
-			}
+		if(!closedTree.hasSuperset(base, base.getSupport())) {
+			closedTree.add(base);
+			closedItemsets.add(base);
 		}
-		return freqList;
 	}
 	
 	/**
-	 * Constructs the cond pattern base for items up to a certain point in the freq pattern.
-	 * @param origCondPattBase The original conditional pattern base.
-	 * @param frequentPattern The frequent pattern.
-	 * @param endItem An item in the frequent pattern where the new conditional pattern base will stop at.
-	 * @return List containing the new conditional pattern base.
+	 * Constructs the maximal itemsets among the base itemset and its extensions (FPMax).
+	 * An itemset is maximal if its conditional tree is empty and no maximal itemset found so far contains it.
+	 * A branch is pruned when a maximal itemset contains the branch's itemset and all items of its conditional tree.
+	 * @param maximalItemsets List of maximal itemsets that are found.
+	 * @param condTree Conditional FP tree of the base itemset.
+	 * @param base Base itemset with its support.
+	 * @param minSupport Minimum support level.
+	 * @param maximalTree Tree of the maximal itemsets found so far.
 	 */
-	public static List<Itemset> constructCondPattBase(List<Itemset> origCondPattBase, Itemset[] frequentPattern, String endItem) {
-		List<Itemset> condPattBase = new ArrayList<Itemset>();
+	public static void constructMaximalItemsets(List<Itemset> maximalItemsets, FPTree condTree, Itemset base, int minSupport, ItemsetTree maximalTree) {
+		//The base has no frequent extension, and the check before its branch was entered found no superset
+		if(condTree.isEmpty()) {
+			maximalTree.add(base);
+			maximalItemsets.add(base);
+			return;
+		}
 		
-		for(Itemset i : origCondPattBase) {
-			if(!i.contains(endItem)) {
+		for(int item = condTree.getMaxItem(); item >= 0; item--) {
+			int support = condTree.getSupport(item);
+			if(support < minSupport) {
 				continue;
 			}
-			Itemset condItemset = new Itemset();
-			for(Itemset patt : frequentPattern) {
-				String item = patt.getFirstItem();
-				if(item.equals(endItem)) {
-					break;
-				}
-				else if(i.contains(item)) {
-					condItemset.addItem(item);
-				}
-			}
-			if(condItemset.size()!=0) {
-				condItemset.setSupport(i.getSupport());
-				condPattBase.add(condItemset);
+			Itemset freqItemset = base.withFirstItem(item, support);
+			FPTree itemCondTree = condTree.project(item, minSupport);
+			if(!maximalTree.hasSuperset(addTreeItems(freqItemset, itemCondTree), 0)) {
+				constructMaximalItemsets(maximalItemsets, itemCondTree, freqItemset, minSupport, maximalTree);
 			}
 		}
-		return condPattBase;
 	}
 	
 	/**
-	 * Constructs frequent itemsets by using an itemset's conditional pattern base 
-	 * and finding the conditional FP trees for those itemsets.
-	 * This is called recursively until all frequent itemsets are found for the item.
-	 * @param frequentItemsets List of frequent itemsets that are found.
-	 * @param freqPatternList The frequent pattern used for the construction of conditional pattern bases.
-	 * @param origCondPattBase Original conditional pattern base of the itemset.
-	 * @param base Base itemset to generate frequent itemsets from.
-	 * @param minSupport Minimum support level.
+	 * Returns an itemset with the items of its conditional FP tree added, which is the largest itemset that its branch can find.
+	 * @param itemset Itemset whose items are all larger than the items of the tree.
+	 * @param condTree Conditional FP tree of the itemset.
+	 * @return Sorted union of the itemset and the items of the tree.
 	 */
-	public static void constructFreqItemsets(List<Itemset> frequentItemsets, Itemset[] freqPatternList, List<Itemset> origCondPattBase, Itemset base, int minSupport) {
-		List<Itemset> condPattBase = constructCondPattBase(origCondPattBase, freqPatternList, base.getFirstItem());
-		if(condPattBase.isEmpty()) {
-			return;
+	private static Itemset addTreeItems(Itemset itemset, FPTree condTree) {
+		Itemset.Builder union = new Itemset.Builder(condTree.getMaxItem()+1 + itemset.size());
+		for(int item=0; item<=condTree.getMaxItem(); item++) {
+			if(condTree.getSupport(item) > 0) {
+				union.addItem(item);
+			}
 		}
-		List<Itemset> fList = ItemsetUtils.findFList(condPattBase, minSupport);
-		for(Itemset i : fList) {
-			Itemset freqItemset = new Itemset(base);
-			String condItem = i.getLastItem();
-			freqItemset.addItemToFront(condItem);
-			freqItemset.setSupport(Math.min(base.getSupport(), i.getSupport()));
-			frequentItemsets.add(freqItemset);
-			constructFreqItemsets(frequentItemsets, freqPatternList, condPattBase, freqItemset, minSupport);
+		for(int i=0; i<itemset.size(); i++) {
+			union.addItem(itemset.getItem(i));
 		}
+		return union.build(-1);
+	}
+	
+	/**
+	 * Generates all association rules of a frequent itemset whose confidence meets the minimum confidence (ap-genrules).
+	 * Consequents are grown one item at a time, level by level. Moving an item from the antecedent
+	 * to the consequent can only lower the confidence, so a consequent is only grown from consequents
+	 * whose subsets all made confident rules.
+	 * @param rules List of association rules to add to.
+	 * @param supportIndex Index of the support counts of all frequent itemsets.
+	 * @param itemset Frequent itemset sorted by item id.
+	 * @param minConfidence Minimum confidence level.
+	 * @return Number of candidate rules whose confidence was checked.
+	 */
+	public static int genAssocRules(List<AssociationRule> rules, SupportIndex supportIndex, Itemset itemset, double minConfidence) {
+		return genAssocRules(rules, supportIndex, null, itemset, minConfidence);
 	}
 	
 	/**
-	 * Generates combinations of association rules. Uses the pattern of generation of frequent itemsets.
+	 * Generates all association rules of a frequent itemset whose confidence meets the minimum confidence (ap-genrules).
+	 * If the support index only holds closed itemsets, the support of an antecedent or consequent that is not in the index
+	 * is the support of its closure, the closed superset with the largest support.
+	 * Consequents whose antecedent has no closure are still grown, since their confidence is not known.
 	 * @param rules List of association rules to add to.
-	 * @param freqItemsets List of frequent itemsets to look up support counts.
-	 * @param freqItems List of frequent items, since they are not included in the freqItemsets list.
-	 * @param firstItemset Itemset to generate association rules for.
-	 * @param secondItemset 
-	 * @param support 
+	 * @param supportIndex Index of the support counts of the frequent itemsets.
+	 * @param closedItemsets Tree of the closed itemsets in the index, null if the index holds all frequent itemsets.
+	 * @param itemset Frequent itemset sorted by item id.
+	 * @param minConfidence Minimum confidence level.
+	 * @return Number of candidate rules whose confidence was checked, which leaves out the ones whose antecedent's support is not known.
 	 */
-	public static void genAssocRules(List<AssociationRule> rules, List<Itemset> freqItemsets, List<Itemset> freqItems, Itemset firstItemset, Itemset secondItemset, int support){
-		int size = secondItemset.size();
+	public static int genAssocRules(List<AssociationRule> rules, SupportIndex supportIndex, ItemsetTree closedItemsets, Itemset itemset, double minConfidence) {
+		int size = itemset.size();
 		if(size <= 1) {
-			return;
+			return 0;
 		}
 		
-		Itemset firstItemsetCount;
-		Itemset secondItemsetCount;
-		
-		firstItemset.addItem(secondItemset.getFirstItem());
-		
-		Itemset second = new Itemset();
-		for(int i=1; i<size; i++) {
-			second.addItem(secondItemset.getItemset().get(i));
+		//Consequents of one item
+		List<int[]> consequents = new ArrayList<int[]>();
+		int numCandidates = 0;
+		Itemset.Builder antecedent = new Itemset.Builder(size);
+		for(int i=0; i<size; i++) {
+			int[] consequent = new int[] {itemset.getItem(i)};
+			numCandidates += addRule(rules, supportIndex, closedItemsets, itemset, consequent, minConfidence, antecedent, consequents);
 		}
 		
-		if(firstItemset.size()==1) {
-			firstItemsetCount = findItemset(freqItems, firstItemset);
+		//Join consequents of m items that share their first m-1 items into consequents of m+1 items
+		//The consequents of a level are in lexicographic order since the itemset is sorted
+		for(int m=1; m+1<size && consequents.size()>1; m++) {
+			List<int[]> nextConsequents = new ArrayList<int[]>();
+			for(int i=0; i<consequents.size(); i++) {
+				int[] first = consequents.get(i);
+				for(int j=i+1; j<consequents.size(); j++) {
+					int[] second = consequents.get(j);
+					if(!samePrefix(first, second, m-1)) {
+						break;
+					}
+					int[] candidate = Arrays.copyOf(first, m+1);
+					candidate[m] = second[m-1];
+					if(!allSubsetsIn(consequents, candidate)) {
+						continue;
+					}
+					numCandidates += addRule(rules, supportIndex, closedItemsets, itemset, candidate, minConfidence, antecedent, nextConsequents);
+				}
+			}
+			consequents = nextConsequents;
 		}
-		else {
-			firstItemsetCount = findItemset(freqItemsets, firstItemset);
+		return numCandidates;
+	}
+	
+	/**
+	 * Adds the rule (itemset - consequent) -> consequent if its confidence meets the minimum confidence.
+	 * @param rules List of association rules to add to.
+	 * @param supportIndex Index of the support counts of the frequent itemsets.
+	 * @param closedItemsets Tree of the closed itemsets in the index, null if the index holds all frequent itemsets.
+	 * @param itemset Frequent itemset sorted by item id.
+	 * @param consequent Sorted item ids of the consequent, a proper subset of the itemset.
+	 * @param minConfidence Minimum confidence level.
+	 * @param antecedent Builder that is reused for the antecedents of the itemset's rules.
+	 * @param consequents List of consequents to grow, the consequent is added to it unless the rule is not confident.
+	 * @return 1 if the confidence of the rule was checked, 0 if the antecedent's support is not known.
+	 */
+	private static int addRule(List<AssociationRule> rules, SupportIndex supportIndex, ItemsetTree closedItemsets, Itemset itemset, int[] consequent, double minConfidence, Itemset.Builder antecedent, List<int[]> consequents) {
+		antecedent.clear();
+		int c = 0;
+		for(int i=0; i<itemset.size(); i++) {
+			int item = itemset.getItem(i);
+			if(c < consequent.length && consequent[c] == item) {
+				c++;
+			}
+			else {
+				antecedent.addItem(item);
+			}
 		}
 		
-		
-		if(second.size()==1) {
-			secondItemsetCount = findItemset(freqItems, second);
+		//Every subset of a frequent itemset is frequent, so the antecedent is in the index unless only closed itemsets are
+		Itemset left = antecedent.build(-1);
+		left.setSupport(getSupport(supportIndex, closedItemsets, left));
+		if(left.getSupport() == -1) {
+			consequents.add(consequent);
+			return 0;
 		}
-		else {
-			secondItemsetCount = findItemset(freqItemsets, second);
+		Itemset right = new Itemset(consequent, -1);
+		AssociationRule rule = new AssociationRule(left, right, itemset.getSupport());
+		if(rule.getConfidence() < minConfidence) {
+			return 1;
 		}
-		
-		
-		if(firstItemsetCount == null || secondItemsetCount == null) {
-			return;
+		right.setSupport(getSupport(supportIndex, closedItemsets, right));
+		rules.add(rule);
+		consequents.add(consequent);
+		return 1;
+	}
+	
+	/**
+	 * Returns the support count of a frequent itemset from the index, or from its closure if the index only holds closed itemsets.
+	 * @param supportIndex Index of the support counts of the frequent itemsets.
+	 * @param closedItemsets Tree of the closed itemsets in the index, null if the index holds all frequent itemsets.
+	 * @param itemset Itemset sorted by item id.
+	 * @return Support count of the itemset, -1 if it is not known.
+	 */
+	private static int getSupport(SupportIndex supportIndex, ItemsetTree closedItemsets, Itemset itemset) {
+		int support = supportIndex.getSupport(itemset);
+		if(support == -1 && closedItemsets != null) {
+			support = closedItemsets.getSupersetSupport(itemset);
 		}
-		
-		firstItemset.setSupport(firstItemsetCount.getSupport());
-		second.setSupport(secondItemsetCount.getSupport());
-		rules.add(new AssociationRule(firstItemset, second, support));
-		rules.add(new AssociationRule(second, firstItemset, support));
-		
-		Itemset newFirst = new Itemset(firstItemset);
-		
-		genAssocRules(rules, freqItemsets, freqItems, newFirst, second, support);
+		return support;
+	}
+	
+	/**
+	 * Determines if two item id arrays start with the same items.
+	 * @param first First array.
+	 * @param second Second array.
+	 * @param length Number of items to compare.
+	 * @return true if the first length items are equal, false if not.
+	 */
+	private static boolean samePrefix(int[] first, int[] second, int length) {
+		for(int i=0; i<length; i++) {
+			if(first[i] != second[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Determines if every subset of a candidate with one item left out is in a list of consequents.
+	 * The two subsets that the candidate was joined from are not checked again.
+	 * @param consequents Lexicographically ordered consequents of one item less than the candidate.
+	 * @param candidate Candidate consequent.
+	 * @return true if all subsets are in the list, false if not.
+	 */
+	private static boolean allSubsetsIn(List<int[]> consequents, int[] candidate) {
+		int[] subset = new int[candidate.length-1];
+		for(int skip=0; skip<candidate.length-2; skip++) {
+			for(int i=0, j=0; i<candidate.length; i++) {
+				if(i != skip) {
+					subset[j++] = candidate[i];
+				}
+			}
+			if(Collections.binarySearch(consequents, subset, LEXICOGRAPHIC) < 0) {
+				return false;
+			}
+		}
+		return true;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+//Receives the frequent itemsets that a mining recursion finds, one at a time and in the order they are found
+//The exception type is the one visiting can throw, so visitors that only collect itemsets throw no checked exceptions
+
+package FPGrowthRuleMining;
+
+public interface ItemsetVisitor<E extends Exception> {
+	/**
+	 * Receives a frequent itemset. The visitor may keep the itemset, since the recursion does not change it.
+	 * @param itemset Frequent itemset with its support count.
+	 * @throws E If the itemset could not be handled.
+	 */
+	public void visit(Itemset itemset) throws E;
+}
@@ -0,0 +1,137 @@
+//Binary form of an itemset or path: the number of items, the item ids and the support count as variable length ints
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.Arrays;
+
+public class ItemsetWritable implements Writable {
+	//Variables
+	private int[] items;
+	private int size;
+	private int support;
+	
+	//Constructors
+	public ItemsetWritable() {
+		this.items = new int[16];
+		this.size = 0;
+		this.support = 0;
+	}
+	
+	public ItemsetWritable(Itemset itemset) {
+		this();
+		set(itemset);
+	}
+	
+	//Methods
+	/**
+	 * Sets this to the items and support count of an itemset.
+	 * @param itemset Itemset to write.
+	 */
+	public void set(Itemset itemset) {
+		this.size = 0;
+		for(int i=0; i<itemset.size(); i++) {
+			addItem(itemset.getItem(i));
+		}
+		this.support = itemset.getSupport();
+	}
+	
+	/**
+	 * Sets this to the first items of an array.
+	 * @param items Item ids.
+	 * @param length Number of items to use.
+	 * @param support Support count.
+	 */
+	public void set(int[] items, int length, int support) {
+		if(length > this.items.length) {
+			this.items = new int[length];
+		}
+		System.arraycopy(items, 0, this.items, 0, length);
+		this.size = length;
+		this.support = support;
+	}
+	
+	/**
+	 * Returns the itemset that was read.
+	 * @return New itemset with the items and support count.
+	 */
+	public Itemset get() {
+		return new Itemset(this.items, this.size, this.support);
+	}
+	
+	/**
+	 * Returns the item ids without copying them. Only the first size() ids are part of the itemset.
+	 * @return Array of item ids.
+	 */
+	public int[] getItems() {
+		return this.items;
+	}
+	
+	/**
+	 * Returns the number of items.
+	 * @return Number of items.
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Returns the support count.
+	 * @return Support count.
+	 */
+	public int getSupport() {
+		return this.support;
+	}
+	
+	private void addItem(int item) {
+		if(this.size == this.items.length) {
+			this.items = Arrays.copyOf(this.items, this.size*2);
+		}
+		this.items[this.size++] = item;
+	}
+	
+	/**
+	 * Writes an itemset without creating a writable for it.
+	 * @param out Output to write to.
+	 * @param itemset Itemset to write.
+	 * @throws IOException
+	 */
+	public static void write(DataOutput out, Itemset itemset) throws IOException {
+		WritableUtils.writeVInt(out, itemset.size());
+		for(int i=0; i<itemset.size(); i++) {
+			WritableUtils.writeVInt(out, itemset.getItem(i));
+		}
+		WritableUtils.writeVInt(out, itemset.getSupport());
+	}
+	
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, this.size);
+		for(int i=0; i<this.size; i++) {
+			WritableUtils.writeVInt(out, this.items[i]);
+		}
+		WritableUtils.writeVInt(out, this.support);
+	}
+	
+	public void readFields(DataInput in) throws IOException {
+		int length = WritableUtils.readVInt(in);
+		if(length > this.items.length) {
+			this.items = new int[length];
+		}
+		for(int i=0; i<length; i++) {
+			this.items[i] = WritableUtils.readVInt(in);
+		}
+		this.size = length;
+		this.support = WritableUtils.readVInt(in);
+	}
+	
+	@Override
+	public String toString() {
+		return get().toString()+":"+this.support;
+	}
+}
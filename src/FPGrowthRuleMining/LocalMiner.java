@@ -0,0 +1,327 @@
+//Frequent itemset and association rules generation in a single JVM without hadoop jobs
+//The FP tree of all transactions is built once and the base items are mined in parallel on a ForkJoinPool
+
+package FPGrowthRuleMining;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class LocalMiner {
+	//Variables
+	private int minSupport;
+	private double minConfidence;
+	private int offset;
+	private String treeStorage;
+	private ForkJoinPool pool;
+	private ItemDictionary dictionary;
+	//Frequent itemsets of each base item, indexed by the base item's id
+	private List<Itemset>[] freqItemsets;
+	private SupportIndex supportIndex;
+
+	//Constructors
+	/**
+	 * Creates a miner.
+	 * @param minSupport Minimum support level.
+	 * @param minConfidence Minimum confidence level.
+	 * @param offset Number of leading fields of each line that are skipped before the items of the transaction.
+	 * @param parallelism Number of threads that mine base items.
+	 */
+	public LocalMiner(int minSupport, double minConfidence, int offset, int parallelism) {
+		this.minSupport = minSupport;
+		this.minConfidence = minConfidence;
+		this.offset = offset;
+		this.treeStorage = "node";
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	//Methods
+	/**
+	 * Sets how the FP tree is stored.
+	 * @param treeStorage "node", "heap", "direct" or "mapped", see ItemsetUtils.newFPTree.
+	 */
+	public void setTreeStorage(String treeStorage) {
+		this.treeStorage = treeStorage;
+	}
+
+	/**
+	 * Returns the dictionary of frequent items found by the last call to mine.
+	 * @return Dictionary of the frequent items.
+	 */
+	public ItemDictionary getDictionary() {
+		return this.dictionary;
+	}
+
+	/**
+	 * Mines the frequent itemsets of the transactions in the input files.
+	 * The input is read twice, once to count the items and once to build the FP tree.
+	 * @param input File or directory of files with one transaction per line.
+	 * @return Frequent itemsets with at least two items, grouped by their last item.
+	 * @throws IOException
+	 */
+	public List<Itemset> mine(File input) throws IOException {
+		List<File> files = listInputFiles(input);
+		ItemDictionary dictionary = countItems(files);
+
+		//Construct the FP tree of all transactions
+		FPTree tree = ItemsetUtils.newFPTree(this.treeStorage);
+		for(File file : files) {
+			BufferedReader reader = openReader(file);
+			String line;
+			while((line = reader.readLine()) != null) {
+				int[] orderedItemset = dictionary.encode(ItemsetUtils.readTransaction(line, this.offset));
+				tree.insert(orderedItemset, orderedItemset.length, 1);
+			}
+			reader.close();
+		}
+		return mine(dictionary, tree);
+	}
+
+	/**
+	 * Mines the frequent itemsets of an FP tree that was already constructed.
+	 * @param dictionary Dictionary of the frequent items, whose ids the tree uses.
+	 * @param tree FP tree of the transactions.
+	 * @return Frequent itemsets with at least two items, grouped by their last item.
+	 */
+	public List<Itemset> mine(ItemDictionary dictionary, final FPTree tree) {
+		this.dictionary = dictionary;
+		this.supportIndex = null;
+
+		//Mine each base item from its conditional FP tree
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		final List<Itemset>[] freqItemsets = new List[dictionary.size()];
+		this.pool.invoke(new RangeTask(new BaseItemWork() {
+			public void run(int baseItem) {
+				List<Itemset> itemsets = new ArrayList<Itemset>();
+				FPTree condTree = tree.project(baseItem, minSupport);
+				if(!condTree.isEmpty()) {
+					Itemset base = new Itemset(new int[] {baseItem}, tree.getSupport(baseItem));
+					//Large conditional trees are split further so that the most frequent items do not run on one thread
+					ItemsetUtils.constructFreqItemsets(itemsets, condTree, base, minSupport, pool);
+				}
+				freqItemsets[baseItem] = itemsets;
+			}
+		}, 0, freqItemsets.length));
+		this.freqItemsets = freqItemsets;
+		return concat(freqItemsets);
+	}
+
+	/**
+	 * Generates the association rules of the frequent itemsets found by the last call to mine.
+	 * @return Association rules that meet the minimum confidence.
+	 * @throws IOException If the support index is larger than 2GB.
+	 */
+	public List<AssociationRule> generateRules() throws IOException {
+		//Index the support counts of the frequent items and itemsets
+		if(this.supportIndex == null) {
+			int numItemsets = this.dictionary.size();
+			long numItems = this.dictionary.size();
+			for(List<Itemset> itemsets : this.freqItemsets) {
+				for(Itemset itemset : itemsets) {
+					numItemsets++;
+					numItems += itemset.size();
+				}
+			}
+			this.supportIndex = SupportIndex.create(numItemsets, numItems, null);
+			for(int item=0; item<this.dictionary.size(); item++) {
+				this.supportIndex.add(new Itemset(new int[] {item}, this.dictionary.getSupport(item)));
+			}
+			for(List<Itemset> itemsets : this.freqItemsets) {
+				for(Itemset itemset : itemsets) {
+					this.supportIndex.add(itemset);
+				}
+			}
+		}
+
+		//Generate the rules of each base item's itemsets
+		final List<Itemset>[] freqItemsets = this.freqItemsets;
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		final List<AssociationRule>[] rules = new List[freqItemsets.length];
+		this.pool.invoke(new RangeTask(new BaseItemWork() {
+			public void run(int baseItem) {
+				List<AssociationRule> baseRules = new ArrayList<AssociationRule>();
+				for(Itemset itemset : freqItemsets[baseItem]) {
+					ItemsetUtils.genAssocRules(baseRules, supportIndex, itemset, minConfidence);
+				}
+				rules[baseItem] = baseRules;
+			}
+		}, 0, freqItemsets.length));
+		return concat(rules);
+	}
+
+	/**
+	 * Writes frequent itemsets as text in the format of the exported frequent itemsets, one itemset and its support count per line.
+	 * @param freqItemsets Frequent itemsets to write.
+	 * @param file File to write to.
+	 * @throws IOException
+	 */
+	public void writeFreqItemsets(List<Itemset> freqItemsets, File file) throws IOException {
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		for(Itemset itemset : freqItemsets) {
+			out.print(itemset.toString(this.dictionary)+"\t"+itemset.getSupport()+"\n");
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes association rules as text in the format of the rule generation job, one rule and its confidence per line.
+	 * Like the output of a rule generation reducer, the rules are sorted by the item ids of their antecedents, then of their consequents.
+	 * @param rules Association rules to write.
+	 * @param file File to write to.
+	 * @throws IOException
+	 */
+	public void writeRules(List<AssociationRule> rules, File file) throws IOException {
+		List<AssociationRule> sorted = new ArrayList<AssociationRule>(rules);
+		//The order of the AssociationRuleWritable keys of the shuffle, the items of a rule are unique
+		Collections.sort(sorted, new Comparator<AssociationRule>() {
+			public int compare(AssociationRule a, AssociationRule b) {
+				return AssociationRule.compareItems(a, b);
+			}
+		});
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		for(AssociationRule r : sorted) {
+			out.print(r.toString(this.dictionary)+"\t"+r.getConfidence()+"\n");
+		}
+		out.close();
+	}
+
+	/**
+	 * Counts the items of the transactions in the input files and ranks the frequent items.
+	 * @param files Input files.
+	 * @return Dictionary of the frequent items.
+	 * @throws IOException
+	 */
+	private ItemDictionary countItems(List<File> files) throws IOException {
+		Map<String,int[]> counts = new HashMap<String,int[]>();
+		for(File file : files) {
+			BufferedReader reader = openReader(file);
+			String line;
+			while((line = reader.readLine()) != null) {
+				for(String item : ItemsetUtils.readTransaction(line, this.offset)) {
+					int[] itemCount = counts.get(item);
+					if(itemCount == null) {
+						itemCount = new int[1];
+						counts.put(item, itemCount);
+					}
+					itemCount[0]++;
+				}
+			}
+			reader.close();
+		}
+
+		List<String> names = new ArrayList<String>();
+		List<Integer> supports = new ArrayList<Integer>();
+		for(Map.Entry<String,int[]> entry : counts.entrySet()) {
+			if(entry.getValue()[0] >= this.minSupport) {
+				names.add(entry.getKey());
+				supports.add(entry.getValue()[0]);
+			}
+		}
+		return ItemDictionary.rank(names, supports);
+	}
+
+	/**
+	 * Lists the input files. Like hadoop's input formats, files starting with '_' or '.' in a directory are skipped.
+	 * @param input File or directory.
+	 * @return Input files.
+	 */
+	private static List<File> listInputFiles(File input) {
+		List<File> files = new ArrayList<File>();
+		if(!input.isDirectory()) {
+			files.add(input);
+			return files;
+		}
+		File[] children = input.listFiles();
+		Arrays.sort(children);
+		for(File child : children) {
+			if(child.isFile() && !child.getName().startsWith("_") && !child.getName().startsWith(".")) {
+				files.add(child);
+			}
+		}
+		return files;
+	}
+
+	private static BufferedReader openReader(File file) throws IOException {
+		return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+	}
+
+	private static <T> List<T> concat(List<T>[] lists) {
+		List<T> all = new ArrayList<T>();
+		for(List<T> list : lists) {
+			all.addAll(list);
+		}
+		return all;
+	}
+
+	/**
+	 * Work done for one base item.
+	 */
+	private interface BaseItemWork {
+		public void run(int baseItem);
+	}
+
+	/**
+	 * Task that runs the work of every base item in a range, splitting the range in half until it is one item.
+	 */
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private BaseItemWork work;
+		private int start;
+		private int end;
+
+		RangeTask(BaseItemWork work, int start, int end) {
+			this.work = work;
+			this.start = start;
+			this.end = end;
+		}
+
+		protected void compute() {
+			if(end - start == 1) {
+				work.run(start);
+			}
+			else if(end - start > 1) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new RangeTask(work, start, mid), new RangeTask(work, mid, end));
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		//Arguements
+		File input = new File(args[0]);
+		File outputDir = new File(args[1]);
+		int support = Integer.parseInt(args[2]);
+		double confidence = Double.parseDouble(args[3]);
+		int offset = Integer.parseInt(args[4]);
+		int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+		//Program start
+		long start = System.currentTimeMillis();
+
+		LocalMiner miner = new LocalMiner(support, confidence, offset, threads);
+		List<Itemset> freqItemsets = miner.mine(input);
+		List<AssociationRule> rules = miner.generateRules();
+
+		outputDir.mkdirs();
+		miner.writeFreqItemsets(freqItemsets, new File(outputDir, "freqItemsets.txt"));
+		miner.writeRules(rules, new File(outputDir, "rules.txt"));
+
+		//Print computation time
+		long end = System.currentTimeMillis();
+		System.out.println(freqItemsets.size()+" frequent itemsets and "+rules.size()+" rules generated. Time: "+((end-start)/1000)+"s");
+	}
+}
@@ -0,0 +1,31 @@
+//Counters that the tasks of the mining jobs report next to the framework counters
+//Times are in milliseconds summed over all tasks, the driver prints the counters of each job in its stage summary
+
+package FPGrowthRuleMining;
+
+public enum MiningCounters {
+	//PathsMapper: transactions read, paths written for them and the time OrderedItemsetMapper spent parsing and encoding them
+	TRANSACTIONS,
+	PATHS_EMITTED,
+	PARSE_MILLIS,
+	//FreqItemsetReducer: size of the conditional pattern bases and of the FP trees built from them,
+	//where shared prefixes make the tree smaller than the items of its paths
+	PATHS_RECEIVED,
+	PATH_ITEMS,
+	TREE_NODES,
+	TREE_BUILD_MILLIS,
+	//FreqItemsetReducer: base items mined, conditional FP trees projected and their nodes, and itemsets found
+	BASE_ITEMS,
+	COND_TREES,
+	COND_TREE_NODES,
+	FREQ_ITEMSETS,
+	MINING_MILLIS,
+	//RulesMapper and RulesReducer: candidate rules checked, rules that met the minimum confidence and the ones that did not
+	//in the mappers and in the reducers, rules dropped from the top N and rules written
+	RULE_CANDIDATES,
+	RULES_GENERATED,
+	RULES_PRUNED_MAP,
+	RULES_PRUNED_REDUCE,
+	RULES_DROPPED,
+	RULES_WRITTEN
+}
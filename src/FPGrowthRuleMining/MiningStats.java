@@ -0,0 +1,57 @@
+//Statistics of the mining of a base item: the conditional FP trees that were projected and how deep the recursion went
+//Branches mined by parallel tasks add to the same statistics, so adding is synchronized
+
+package FPGrowthRuleMining;
+
+public class MiningStats {
+	//Variables
+	private long numCondTrees;
+	private long numCondTreeNodes;
+	private int maxDepth;
+
+	//Methods
+	/**
+	 * Adds a projected conditional FP tree.
+	 * @param condTree The conditional FP tree.
+	 * @param depth Number of items of the itemset that the tree is conditional on, 1 for the tree of a base item.
+	 */
+	public synchronized void addCondTree(FPTree condTree, int depth) {
+		this.numCondTrees++;
+		//The root is not visited when the tree is mined
+		this.numCondTreeNodes += condTree.getNumNodes() - 1;
+		this.maxDepth = Math.max(this.maxDepth, depth);
+	}
+
+	/**
+	 * Returns the number of conditional FP trees that were projected.
+	 * @return Number of trees.
+	 */
+	public synchronized long getNumCondTrees() {
+		return this.numCondTrees;
+	}
+
+	/**
+	 * Returns the number of nodes of all conditional FP trees that were projected, which the recursion visits.
+	 * @return Number of nodes.
+	 */
+	public synchronized long getNumCondTreeNodes() {
+		return this.numCondTreeNodes;
+	}
+
+	/**
+	 * Returns the deepest level of the recursion.
+	 * @return Largest number of items of an itemset that a conditional FP tree was projected for.
+	 */
+	public synchronized int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	/**
+	 * Clears the statistics to reuse them for the next base item.
+	 */
+	public synchronized void clear() {
+		this.numCondTrees = 0;
+		this.numCondTreeNodes = 0;
+		this.maxDepth = 0;
+	}
+}
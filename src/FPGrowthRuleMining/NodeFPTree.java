@@ -0,0 +1,175 @@
+//FP tree made of FPTreeNode objects with a header table that links all nodes of the same item
+//Paths are inserted in frequent pattern order, which is ascending item id
+
+package FPGrowthRuleMining;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class NodeFPTree implements FPTree {
+	//Variables
+	private FPTreeNode root;
+	private FPTreeNode[] headerTable;
+	private int[] supports;
+	private int maxItem;
+	private int numNodes;
+
+	//Constructors
+	public NodeFPTree() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty tree.
+	 * @param numItems Expected number of items, the item ids are expected to be less than this.
+	 */
+	public NodeFPTree(int numItems) {
+		this.root = new FPTreeNode();
+		this.headerTable = new FPTreeNode[Math.max(numItems, 1)];
+		this.supports = new int[Math.max(numItems, 1)];
+		this.maxItem = -1;
+		this.numNodes = 1;
+	}
+
+	//Methods
+	/**
+	 * Returns the root of the tree.
+	 * @return Root node, which has no item.
+	 */
+	public FPTreeNode getRoot() {
+		return this.root;
+	}
+
+	public int getMaxItem() {
+		return this.maxItem;
+	}
+
+	public boolean isEmpty() {
+		return this.maxItem == -1;
+	}
+
+	public int getSupport(int item) {
+		if(item > this.maxItem) {
+			return 0;
+		}
+		return this.supports[item];
+	}
+
+	public int getNumNodes() {
+		return this.numNodes;
+	}
+
+	/**
+	 * Returns the first node of an item in the header table.
+	 * The rest of the nodes of the item are linked with FPTreeNode.getNext().
+	 * @param item Id of the item.
+	 * @return First node of the item, null if the item is not in the tree.
+	 */
+	public FPTreeNode getHeadNode(int item) {
+		if(item > this.maxItem) {
+			return null;
+		}
+		return this.headerTable[item];
+	}
+
+	public void insert(Itemset path, int count) {
+		FPTreeNode node = this.root;
+		for(int i=0; i<path.size(); i++) {
+			node = insertChild(node, path.getItem(i), count);
+		}
+	}
+
+	public void insert(int[] path, int length, int count) {
+		FPTreeNode node = this.root;
+		for(int i=0; i<length; i++) {
+			node = insertChild(node, path[i], count);
+		}
+	}
+
+	public List<Itemset> getPaths() {
+		List<Itemset> paths = new ArrayList<Itemset>();
+		addPaths(paths, this.root, new Itemset.Builder());
+		return paths;
+	}
+
+	/**
+	 * Adds the paths that end in the subtree of a node.
+	 * A path ends at a node as many times as the node's count exceeds the counts of its children.
+	 * @param paths List of paths to add to.
+	 * @param node Node of the subtree.
+	 * @param path Path from the root to the node, which is the same again when this returns.
+	 */
+	private void addPaths(List<Itemset> paths, FPTreeNode node, Itemset.Builder path) {
+		int ends = node.getCount();
+		for(FPTreeNode child : node.getChildrenNodes()) {
+			ends -= child.getCount();
+			path.addItem(child.getItem());
+			addPaths(paths, child, path);
+			path.removeLastItem();
+		}
+		if(node != this.root && ends > 0) {
+			paths.add(path.build(ends));
+		}
+	}
+
+	/**
+	 * Adds the count to the child of a node, creating the child and linking it in the header table if it is new.
+	 * @param parent Parent node.
+	 * @param item Item of the child.
+	 * @param count Count to add.
+	 * @return The child node.
+	 */
+	private FPTreeNode insertChild(FPTreeNode parent, int item, int count) {
+		if(item >= this.headerTable.length) {
+			int length = Math.max(item+1, this.headerTable.length*2);
+			this.headerTable = Arrays.copyOf(this.headerTable, length);
+			this.supports = Arrays.copyOf(this.supports, length);
+		}
+		this.maxItem = Math.max(this.maxItem, item);
+		this.supports[item] += count;
+
+		//A new child is added to the end of the children, which is when it must be linked
+		int numChildren = parent.getChildCount();
+		FPTreeNode child = parent.addChild(item, count);
+		if(parent.getChildCount() != numChildren) {
+			child.setNext(this.headerTable[item]);
+			this.headerTable[item] = child;
+			this.numNodes++;
+		}
+		return child;
+	}
+
+	public FPTree project(int item, int minSupport) {
+		//Count the items in the conditional pattern base
+		int[] counts = new int[item];
+		for(FPTreeNode node = getHeadNode(item); node != null; node = node.getNext()) {
+			for(FPTreeNode n = node.getParent(); n.hasParent(); n = n.getParent()) {
+				counts[n.getItem()] += node.getCount();
+			}
+		}
+
+		//Insert the frequent part of each prefix path
+		NodeFPTree condTree = new NodeFPTree(item);
+		int[] path = new int[16];
+		for(FPTreeNode node = getHeadNode(item); node != null; node = node.getNext()) {
+			int length = 0;
+			for(FPTreeNode n = node.getParent(); n.hasParent(); n = n.getParent()) {
+				if(counts[n.getItem()] >= minSupport) {
+					if(length == path.length) {
+						path = Arrays.copyOf(path, length*2);
+					}
+					path[length++] = n.getItem();
+				}
+			}
+			//Prefix paths are read from the node up, so reverse them back into frequent pattern order
+			for(int i=0, j=length-1; i<j; i++, j--) {
+				int tmp = path[i];
+				path[i] = path[j];
+				path[j] = tmp;
+			}
+			condTree.insert(path, length, node.getCount());
+		}
+		return condTree;
+	}
+}
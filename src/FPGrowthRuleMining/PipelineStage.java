@@ -0,0 +1,72 @@
+//Stage of a run of the association rules generation with its wall time
+//A stage is either a mapreduce job, or work that the driver does between the jobs such as building the support index
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.mapreduce.Job;
+
+import java.io.IOException;
+
+public class PipelineStage {
+	//Variables
+	private String name;
+	private Job job;
+	private long startTime;
+	private long endTime;
+
+	//Constructors
+	/**
+	 * Creates a stage of the driver that ends now.
+	 * @param name Name of the stage.
+	 * @param startTime Time the stage started in milliseconds.
+	 */
+	public PipelineStage(String name, long startTime) {
+		this.name = name;
+		this.startTime = startTime;
+		this.endTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Creates the stage of a job that completed now.
+	 * @param job The completed job.
+	 * @param startTime Time the job was submitted in milliseconds.
+	 */
+	public PipelineStage(Job job, long startTime) {
+		this(job.getJobName(), startTime);
+		this.job = job;
+	}
+
+	//Methods
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the job of the stage.
+	 * @return The completed job, null if the stage ran in the driver.
+	 */
+	public Job getJob() {
+		return this.job;
+	}
+
+	public long getStartTime() {
+		return this.startTime;
+	}
+
+	public long getEndTime() {
+		return this.endTime;
+	}
+
+	public long getWallMillis() {
+		return this.endTime - this.startTime;
+	}
+
+	/**
+	 * Determines if the stage succeeded. Stages of the driver throw an exception instead of failing.
+	 * @return true if the stage succeeded, false if its job failed.
+	 * @throws IOException
+	 */
+	public boolean isSuccessful() throws IOException {
+		return this.job == null || this.job.isSuccessful();
+	}
+}
@@ -0,0 +1,402 @@
+//Frequent itemset and association rules generation over a sliding window of a continuous stream of transactions
+//The window is split into panes of equal duration with an FP tree each, and the oldest pane expires as a whole
+//Closed panes are pruned like in lossy counting: items that are rare in a pane are dropped from its tree,
+//so the support of an itemset in the window is undercounted by at most maxError times the transactions of the window
+
+package FPGrowthRuleMining;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.List;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class StreamingMiner {
+	//Number of lines that the reader can be ahead of the miner
+	private static final int QUEUE_SIZE = 10000;
+	//Time between reads of a followed file at its end
+	private static final long POLL_MILLIS = 500;
+	//Marks the end of the stream in the queue of lines
+	private static final String END_OF_STREAM = new String();
+
+	//Variables
+	private int minSupport;
+	private int offset;
+	private long paneMillis;
+	private int numPanes;
+	private double maxError;
+	private LocalMiner miner;
+	//Panes of the window from the oldest to the open one
+	private ArrayDeque<Pane> panes;
+
+	//Constructors
+	/**
+	 * Creates a miner with an empty window.
+	 * @param minSupport Minimum support level within the window.
+	 * @param minConfidence Minimum confidence level.
+	 * @param offset Number of leading fields of each line that are skipped before the items of the transaction.
+	 * @param windowMillis Duration of the window in milliseconds.
+	 * @param numPanes Number of panes the window is split into. The window moves by one pane at a time.
+	 * @param maxError Fraction of a pane's transactions that an item must exceed to be kept when the pane is closed, 0 to keep every item.
+	 * @param parallelism Number of threads that mine base items.
+	 * @throws IllegalArgumentException If there are no panes or a pane would be shorter than a millisecond.
+	 */
+	public StreamingMiner(int minSupport, double minConfidence, int offset, long windowMillis, int numPanes, double maxError, int parallelism) {
+		if(numPanes < 1) {
+			throw new IllegalArgumentException("The window must have at least 1 pane: "+numPanes);
+		}
+		if(windowMillis / numPanes < 1) {
+			throw new IllegalArgumentException("A window of "+windowMillis+"ms can not be split into "+numPanes+" panes of at least 1ms");
+		}
+		this.minSupport = minSupport;
+		this.offset = offset;
+		this.paneMillis = windowMillis / numPanes;
+		this.numPanes = numPanes;
+		this.maxError = maxError;
+		this.miner = new LocalMiner(minSupport, minConfidence, offset, parallelism);
+		this.panes = new ArrayDeque<Pane>();
+	}
+
+	//Methods
+	/**
+	 * Adds a transaction to the window.
+	 * @param line Line of the transaction.
+	 * @param time Arrival time of the transaction in milliseconds, not earlier than the transactions before it.
+	 */
+	public void add(String line, long time) {
+		advance(time);
+		this.panes.getLast().insert(ItemsetUtils.readTransaction(line, this.offset));
+	}
+
+	/**
+	 * Moves the window to a time. The open pane is closed if the time is past it, and panes that left the window expire.
+	 * @param time Current time in milliseconds.
+	 */
+	public void advance(long time) {
+		long paneStart = time - time % this.paneMillis;
+		Pane open = this.panes.peekLast();
+		if(open == null || open.start < paneStart) {
+			if(open != null) {
+				open.close(this.maxError);
+			}
+			this.panes.addLast(new Pane(paneStart));
+		}
+		while(this.panes.getFirst().start <= paneStart - this.numPanes*this.paneMillis) {
+			this.panes.removeFirst();
+		}
+	}
+
+	/**
+	 * Returns the number of transactions in the window.
+	 * @return Number of transactions.
+	 */
+	public int getWindowSize() {
+		int size = 0;
+		for(Pane pane : this.panes) {
+			size += pane.numTransactions;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the dictionary of frequent items found by the last call to generateRules.
+	 * @return Dictionary of the frequent items.
+	 */
+	public ItemDictionary getDictionary() {
+		return this.miner.getDictionary();
+	}
+
+	/**
+	 * Mines the transactions in the window and generates their association rules.
+	 * The frequent items are ranked again each time, and the paths of every pane are merged into one FP tree with those ids.
+	 * @return Association rules that meet the minimum confidence.
+	 * @throws IOException If the support index is larger than 2GB.
+	 */
+	public List<AssociationRule> generateRules() throws IOException {
+		//Count the items of the window
+		Map<String,int[]> counts = new HashMap<String,int[]>();
+		for(Pane pane : this.panes) {
+			for(int id=0; id<pane.items.size(); id++) {
+				int[] itemCount = counts.get(pane.items.get(id));
+				if(itemCount == null) {
+					itemCount = new int[1];
+					counts.put(pane.items.get(id), itemCount);
+				}
+				itemCount[0] += pane.tree.getSupport(id);
+			}
+		}
+		List<String> names = new ArrayList<String>();
+		List<Integer> supports = new ArrayList<Integer>();
+		for(Map.Entry<String,int[]> entry : counts.entrySet()) {
+			if(entry.getValue()[0] >= this.minSupport) {
+				names.add(entry.getKey());
+				supports.add(entry.getValue()[0]);
+			}
+		}
+		ItemDictionary dictionary = ItemDictionary.rank(names, supports);
+
+		//Construct the FP tree of the window from the paths of the panes
+		FPTree tree = new NodeFPTree(dictionary.size());
+		for(Pane pane : this.panes) {
+			int[] remap = new int[pane.items.size()];
+			for(int id=0; id<remap.length; id++) {
+				remap[id] = dictionary.getId(pane.items.get(id));
+			}
+			for(Itemset path : pane.tree.getPaths()) {
+				int[] orderedItemset = remap(path, remap);
+				tree.insert(orderedItemset, orderedItemset.length, path.getSupport());
+			}
+		}
+
+		this.miner.mine(dictionary, tree);
+		return this.miner.generateRules();
+	}
+
+	/**
+	 * Writes association rules like LocalMiner.writeRules. The file is replaced at once,
+	 * so readers never see the rules of a window partly written.
+	 * @param rules Association rules to write.
+	 * @param file File to write to.
+	 * @throws IOException
+	 */
+	public void writeRules(List<AssociationRule> rules, File file) throws IOException {
+		File tmp = new File(file.getPath()+".tmp");
+		this.miner.writeRules(rules, tmp);
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Maps the items of a path to other ids and drops the items without one.
+	 * @param path Path of item ids.
+	 * @param remap New id of each id, -1 if the item is dropped.
+	 * @return Ids of the path sorted in frequent pattern order.
+	 */
+	private static int[] remap(Itemset path, int[] remap) {
+		int[] orderedItemset = new int[path.size()];
+		int size = 0;
+		for(int i=0; i<path.size(); i++) {
+			int id = remap[path.getItem(i)];
+			if(id != -1) {
+				orderedItemset[size++] = id;
+			}
+		}
+		Arrays.sort(orderedItemset, 0, size);
+		return Arrays.copyOf(orderedItemset, size);
+	}
+
+	/**
+	 * Transactions that arrived during one part of the window, stored as an FP tree with ids local to the pane.
+	 */
+	private static class Pane {
+		private long start;
+		private int numTransactions;
+		//Item of each id, and the id of each item while the pane is open
+		private List<String> items;
+		private Map<String,Integer> ids;
+		private FPTree tree;
+
+		Pane(long start) {
+			this.start = start;
+			this.items = new ArrayList<String>();
+			this.ids = new HashMap<String,Integer>();
+			this.tree = new NodeFPTree();
+		}
+
+		/**
+		 * Adds a transaction to the pane. Items get ids in the order they are first seen.
+		 * @param transaction Items of the transaction.
+		 */
+		void insert(List<String> transaction) {
+			int[] path = new int[transaction.size()];
+			for(int i=0; i<path.length; i++) {
+				Integer id = this.ids.get(transaction.get(i));
+				if(id == null) {
+					id = this.items.size();
+					this.ids.put(transaction.get(i), id);
+					this.items.add(transaction.get(i));
+				}
+				path[i] = id;
+			}
+			Arrays.sort(path);
+
+			//Remove duplicates
+			int unique = 0;
+			for(int i=0; i<path.length; i++) {
+				if(unique == 0 || path[unique-1] != path[i]) {
+					path[unique++] = path[i];
+				}
+			}
+			this.tree.insert(path, unique, 1);
+			this.numTransactions++;
+		}
+
+		/**
+		 * Closes the pane. Items that are in at most maxError of its transactions are removed,
+		 * and the other items are ranked by their count in the pane so that the paths share longer prefixes.
+		 * @param maxError Fraction of the pane's transactions that an item must exceed to be kept.
+		 */
+		void close(double maxError) {
+			int maxCount = (int)(maxError * this.numTransactions);
+			List<String> names = new ArrayList<String>();
+			List<Integer> counts = new ArrayList<Integer>();
+			for(int id=0; id<this.items.size(); id++) {
+				if(this.tree.getSupport(id) > maxCount) {
+					names.add(this.items.get(id));
+					counts.add(this.tree.getSupport(id));
+				}
+			}
+			ItemDictionary ranked = ItemDictionary.rank(names, counts);
+			int[] remap = new int[this.items.size()];
+			for(int id=0; id<remap.length; id++) {
+				remap[id] = ranked.getId(this.items.get(id));
+			}
+
+			FPTree pruned = new NodeFPTree(ranked.size());
+			for(Itemset path : this.tree.getPaths()) {
+				int[] orderedItemset = remap(path, remap);
+				pruned.insert(orderedItemset, orderedItemset.length, path.getSupport());
+			}
+			this.tree = pruned;
+			this.items = new ArrayList<String>();
+			for(int id=0; id<ranked.size(); id++) {
+				this.items.add(ranked.getItem(id));
+			}
+			this.ids = null;
+		}
+	}
+
+	/**
+	 * Thread that reads the lines of a stream into a queue. A followed file is read again when more is appended to it,
+	 * other streams end when they are closed.
+	 */
+	private static class LineReader extends Thread {
+		private InputStream in;
+		private boolean follow;
+		private BlockingQueue<String> lines;
+
+		LineReader(InputStream in, boolean follow, BlockingQueue<String> lines) {
+			this.in = in;
+			this.follow = follow;
+			this.lines = lines;
+			setDaemon(true);
+		}
+
+		public void run() {
+			try {
+				//A line is only passed on once its end was read, a followed file can end in the middle of one
+				byte[] buffer = new byte[65536];
+				ByteArrayOutputStream line = new ByteArrayOutputStream();
+				while(true) {
+					int n = this.in.read(buffer);
+					if(n == -1) {
+						if(!this.follow) {
+							break;
+						}
+						Thread.sleep(POLL_MILLIS);
+						continue;
+					}
+					for(int i=0; i<n; i++) {
+						if(buffer[i] == '\n') {
+							this.lines.put(new String(line.toByteArray(), StandardCharsets.UTF_8));
+							line.reset();
+						}
+						else {
+							line.write(buffer[i]);
+						}
+					}
+				}
+				this.in.close();
+			}
+			catch(IOException e) {
+				System.out.println("An error occured while reading the stream: "+e.getMessage());
+			}
+			catch(InterruptedException e) {
+				return;
+			}
+			try {
+				this.lines.put(END_OF_STREAM);
+			}
+			catch(InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Mines the window and replaces the rules in the output directory.
+	 * @param miner Miner of the stream.
+	 * @param outputDir Output directory.
+	 * @param time Current time in milliseconds.
+	 * @throws IOException
+	 */
+	private static void emitRules(StreamingMiner miner, File outputDir, long time) throws IOException {
+		long start = System.currentTimeMillis();
+		miner.advance(time);
+		List<AssociationRule> rules = miner.generateRules();
+		miner.writeRules(rules, new File(outputDir, "rules.txt"));
+		long end = System.currentTimeMillis();
+		System.out.println(rules.size()+" rules generated from "+miner.getWindowSize()+" transactions in the window. Time: "+(end-start)+"ms");
+	}
+
+	public static void main(String[] args) throws Exception {
+		//Arguements
+		String source = args[0];
+		File outputDir = new File(args[1]);
+		int support = Integer.parseInt(args[2]);
+		double confidence = Double.parseDouble(args[3]);
+		int offset = Integer.parseInt(args[4]);
+		long windowMillis = Long.parseLong(args[5]) * 60 * 1000;
+		int numPanes = Integer.parseInt(args[6]);
+		long emitMillis = Long.parseLong(args[7]) * 1000;
+		double maxError = args.length > 8 ? Double.parseDouble(args[8]) : 0.001;
+		int threads = args.length > 9 ? Integer.parseInt(args[9]) : Runtime.getRuntime().availableProcessors();
+		if(windowMillis < 1 || numPanes < 1 || emitMillis < 1) {
+			throw new IllegalArgumentException("The window, the number of panes and the emit interval must be at least 1");
+		}
+
+		StreamingMiner miner = new StreamingMiner(support, confidence, offset, windowMillis, numPanes, maxError, threads);
+
+		//A source of the form host:port is read from a socket, anything else is a file that is followed
+		BlockingQueue<String> lines = new ArrayBlockingQueue<String>(QUEUE_SIZE);
+		int colon = source.lastIndexOf(':');
+		if(!new File(source).exists() && colon > 0) {
+			Socket socket = new Socket(source.substring(0, colon), Integer.parseInt(source.substring(colon+1)));
+			new LineReader(socket.getInputStream(), false, lines).start();
+		}
+		else {
+			new LineReader(new FileInputStream(source), true, lines).start();
+		}
+
+		outputDir.mkdirs();
+		long nextEmit = System.currentTimeMillis() + emitMillis;
+		while(true) {
+			String line = lines.poll(Math.max(nextEmit - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+			long time = System.currentTimeMillis();
+			if(line == END_OF_STREAM) {
+				break;
+			}
+			if(line != null) {
+				miner.add(line, time);
+			}
+			if(time >= nextEmit) {
+				emitRules(miner, outputDir, time);
+				nextEmit = time + emitMillis;
+			}
+		}
+		emitRules(miner, outputDir, System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,283 @@
+//Index of the support count of every frequent itemset, keyed by the itemset's sorted item ids
+//The index is one open-addressing hash table over a file of records, so it can be mapped instead of loaded onto the heap
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.Job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class SupportIndex {
+	//Index layout: header, hash table of record positions, records of (size, item ids, support)
+	private static final int MAGIC = 0x46505349;
+	private static final int HEADER_SIZE = 12;
+	//Name of the index's link in the task's working directory
+	private static final String CACHE_LINK = "supportIndex";
+
+	//Index shared by all tasks that run in the same JVM
+	private static SupportIndex cachedIndex;
+	private static String cachedFile;
+
+	//Variables
+	private ByteBuffer index;
+	private File localFile;
+	private int tableSize;
+	private int recordsStart;
+	private int nextRecord;
+	//Tree of the itemsets, built once for every task that shares the index
+	private ItemsetTree itemsetTree;
+
+	//Constructors
+	private SupportIndex(ByteBuffer index, File localFile) {
+		this.index = index;
+		this.localFile = localFile;
+		this.tableSize = index.getInt(8);
+		this.recordsStart = HEADER_SIZE + 4*this.tableSize;
+		this.nextRecord = this.recordsStart;
+	}
+
+	//Methods
+	/**
+	 * Creates an empty index that itemsets can be added to.
+	 * @param numItemsets Number of itemsets that will be added.
+	 * @param numItems Total number of items in the itemsets that will be added.
+	 * @param file File to map the index to, null to keep the index on the heap.
+	 * @return Empty index.
+	 * @throws IOException If the index would be larger than 2GB.
+	 */
+	public static SupportIndex create(int numItemsets, long numItems, File file) throws IOException {
+		int tableSize = Integer.highestOneBit(Math.max(numItemsets, 1)*2-1)*2;
+		long size = HEADER_SIZE + 4L*tableSize + 8L*numItemsets + 4L*numItems;
+		if(size > Integer.MAX_VALUE) {
+			throw new IOException("Support index of "+numItemsets+" itemsets is larger than 2GB");
+		}
+
+		ByteBuffer index;
+		if(file == null) {
+			index = ByteBuffer.allocate((int)size);
+		}
+		else {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				index = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+			finally {
+				raf.close();
+			}
+		}
+		index.putInt(0, MAGIC);
+		index.putInt(4, numItemsets);
+		index.putInt(8, tableSize);
+		return new SupportIndex(index, file);
+	}
+
+	/**
+	 * Builds the index of all frequent itemsets: the frequent items in the dictionary
+	 * and the frequent itemsets written by the frequent itemset generation.
+	 * The index is built in a memory mapped temporary file.
+	 * @param conf Hadoop configuration variable being used
+	 * @param dictionary Dictionary of frequent items.
+	 * @param freqItemsetsDir Directory of the frequent itemset SequenceFiles.
+	 * @return Index of the support counts.
+	 * @throws IOException
+	 */
+	public static SupportIndex build(Configuration conf, ItemDictionary dictionary, Path freqItemsetsDir) throws IOException {
+		FileSystem fs = freqItemsetsDir.getFileSystem(conf);
+		FileStatus[] parts = fs.globStatus(new Path(freqItemsetsDir, "part-*"));
+		IntWritable baseItem = new IntWritable();
+		ItemsetListWritable freqItemsets = new ItemsetListWritable();
+
+		//Count the itemsets
+		int numItemsets = dictionary.size();
+		long numItems = dictionary.size();
+		for(FileStatus part : parts) {
+			SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(part.getPath()));
+			while(reader.next(baseItem, freqItemsets)) {
+				for(Itemset itemset : freqItemsets.get()) {
+					numItemsets++;
+					numItems += itemset.size();
+				}
+			}
+			reader.close();
+		}
+
+		//Add the itemsets
+		File file = File.createTempFile("supportIndex", ".bin");
+		file.deleteOnExit();
+		SupportIndex index = create(numItemsets, numItems, file);
+		for(int item=0; item<dictionary.size(); item++) {
+			index.add(new Itemset(new int[] {item}, dictionary.getSupport(item)));
+		}
+		for(FileStatus part : parts) {
+			SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(part.getPath()));
+			while(reader.next(baseItem, freqItemsets)) {
+				for(Itemset itemset : freqItemsets.get()) {
+					index.add(itemset);
+				}
+			}
+			reader.close();
+		}
+		return index;
+	}
+
+	/**
+	 * Adds an itemset and its support count to the index.
+	 * @param itemset Itemset sorted by item id.
+	 */
+	public void add(Itemset itemset) {
+		int record = this.nextRecord;
+		this.index.putInt(record, itemset.size());
+		for(int i=0; i<itemset.size(); i++) {
+			this.index.putInt(record + 4*(i+1), itemset.getItem(i));
+		}
+		this.index.putInt(record + 4*(itemset.size()+1), itemset.getSupport());
+		this.nextRecord = record + 4*(itemset.size()+2);
+
+		//Slots hold the record's position after the table plus one so that 0 is empty
+		int mask = this.tableSize-1;
+		int slot = hash(itemset) & mask;
+		while(this.index.getInt(HEADER_SIZE + 4*slot) != 0) {
+			slot = (slot+1) & mask;
+		}
+		this.index.putInt(HEADER_SIZE + 4*slot, record - this.recordsStart + 1);
+	}
+
+	/**
+	 * Returns the support count of an itemset.
+	 * @param itemset Itemset sorted by item id.
+	 * @return Support count of the itemset, -1 if the itemset is not in the index.
+	 */
+	public int getSupport(Itemset itemset) {
+		int size = itemset.size();
+		int mask = this.tableSize-1;
+		int entry;
+		for(int slot = hash(itemset) & mask; (entry = this.index.getInt(HEADER_SIZE + 4*slot)) != 0; slot = (slot+1) & mask) {
+			int record = this.recordsStart + entry - 1;
+			if(this.index.getInt(record) != size) {
+				continue;
+			}
+			int i = 0;
+			while(i < size && this.index.getInt(record + 4*(i+1)) == itemset.getItem(i)) {
+				i++;
+			}
+			if(i == size) {
+				return this.index.getInt(record + 4*(size+1));
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Visits every itemset in the index with its support count, in no particular order.
+	 * @param visitor Visitor that receives the itemsets.
+	 * @throws E If the visitor failed.
+	 */
+	public <E extends Exception> void visitItemsets(ItemsetVisitor<E> visitor) throws E {
+		for(int slot=0; slot<this.tableSize; slot++) {
+			int entry = this.index.getInt(HEADER_SIZE + 4*slot);
+			if(entry == 0) {
+				continue;
+			}
+			int record = this.recordsStart + entry - 1;
+			int[] items = new int[this.index.getInt(record)];
+			for(int i=0; i<items.length; i++) {
+				items[i] = this.index.getInt(record + 4*(i+1));
+			}
+			visitor.visit(new Itemset(items, this.index.getInt(record + 4*(items.length+1))));
+		}
+	}
+
+	/**
+	 * Returns a prefix tree of the itemsets in the index, which finds the supersets of an itemset.
+	 * The tree is built on the first call and shared by every task that uses the same loaded index.
+	 * @return Tree of the itemsets in the index.
+	 */
+	public synchronized ItemsetTree getItemsetTree() {
+		if(this.itemsetTree == null) {
+			final ItemsetTree tree = new ItemsetTree();
+			visitItemsets(new ItemsetVisitor<RuntimeException>() {
+				public void visit(Itemset itemset) {
+					tree.add(itemset);
+				}
+			});
+			this.itemsetTree = tree;
+		}
+		return this.itemsetTree;
+	}
+
+	/**
+	 * Writes the index to a file and sets the configuration so that jobs created from it can load the index.
+	 * A temporary file the index was built in is deleted.
+	 * @param conf Hadoop configuration variable being used
+	 * @param path File to write the index to.
+	 * @throws IOException
+	 */
+	public void publish(Configuration conf, Path path) throws IOException {
+		FileSystem fs = path.getFileSystem(conf);
+		if(this.localFile != null) {
+			fs.copyFromLocalFile(true, true, new Path(this.localFile.toURI()), path);
+		}
+		else {
+			FSDataOutputStream out = fs.create(path, true);
+			out.write(this.index.array(), 0, this.index.capacity());
+			out.close();
+		}
+
+		//The modification time tells indexes apart when an output directory is reused
+		Path qualified = fs.makeQualified(path);
+		conf.set("supportIndex", qualified.toString());
+		conf.setLong("supportIndexTime", fs.getFileStatus(qualified).getModificationTime());
+	}
+
+	/**
+	 * Adds the published index to the distributed cache of a job.
+	 * @param job Job whose tasks load the index.
+	 */
+	public static void addToCache(Job job) {
+		String file = job.getConfiguration().get("supportIndex");
+		job.addCacheFile(URI.create(file + "#" + CACHE_LINK));
+	}
+
+	/**
+	 * Loads the index published by the driver. The index is mapped read-only from the
+	 * distributed cache, and it is shared by every task that runs in the same JVM.
+	 * @param conf Hadoop configuration variable being used
+	 * @return Index of the support counts.
+	 * @throws IOException
+	 */
+	public static synchronized SupportIndex load(Configuration conf) throws IOException {
+		String file = conf.get("supportIndex") + "@" + conf.getLong("supportIndexTime", 0);
+		if(file.equals(cachedFile)) {
+			return cachedIndex;
+		}
+
+		ByteBuffer buffer = ItemsetUtils.mapCachedFile(conf, "supportIndex", CACHE_LINK);
+		if(buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a support index");
+		}
+		cachedIndex = new SupportIndex(buffer, null);
+		cachedFile = file;
+		return cachedIndex;
+	}
+
+	/**
+	 * Hashes the item ids of an itemset. The itemset caches its hash, so looking up the same itemset again does not hash it again.
+	 * @param itemset Itemset to hash.
+	 * @return Hash of the itemset.
+	 */
+	private static int hash(Itemset itemset) {
+		return itemset.hashCode();
+	}
+}
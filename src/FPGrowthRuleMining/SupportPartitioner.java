@@ -0,0 +1,127 @@
+//Partitioner of the frequent itemset generation that balances the estimated mining cost of the reducers
+//Keys are packed onto reducers by greedy bin-packing (largest cost first onto the least loaded reducer) instead of by hash
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+public class SupportPartitioner extends Partitioner<IntWritable,ItemsetWritable> implements Configurable {
+	//Variables
+	private Configuration conf;
+	private ItemDictionary dictionary;
+	private int numGroups;
+	private boolean isolateHeavyKeys;
+	//Reducer of each key, computed for the number of partitions of the first call
+	private int[] partitions;
+	private int numPartitions;
+
+	//Methods
+	public void setConf(Configuration conf) {
+		this.conf = conf;
+		this.numGroups = conf.getInt("numGroups", 0);
+		this.isolateHeavyKeys = conf.getBoolean("isolateHeavyKeys", false);
+		try {
+			this.dictionary = ItemDictionary.load(conf);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public Configuration getConf() {
+		return this.conf;
+	}
+
+	public int getPartition(IntWritable key, ItemsetWritable path, int numPartitions) {
+		if(this.partitions == null || this.numPartitions != numPartitions) {
+			this.partitions = assignPartitions(estimateCosts(), numPartitions, this.isolateHeavyKeys);
+			this.numPartitions = numPartitions;
+		}
+		return this.partitions[key.get()];
+	}
+
+	/**
+	 * Estimates the cost of mining each key. A base item is reached by one prefix path per transaction
+	 * that contains it, and the paths get longer further down the frequent pattern,
+	 * so the cost of an item is its support times its rank. A group costs the sum of its items.
+	 * @return Cost of each key.
+	 */
+	private long[] estimateCosts() {
+		long[] costs = new long[this.numGroups > 0 ? this.numGroups : this.dictionary.size()];
+		for(int item=0; item<this.dictionary.size(); item++) {
+			long cost = (long)this.dictionary.getSupport(item) * (item+1);
+			if(this.numGroups > 0) {
+				costs[ItemsetUtils.getGroup(item, this.numGroups)] += cost;
+			}
+			else {
+				costs[item] = cost;
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * Assigns keys to partitions by greedy bin-packing. Keys are taken from the largest cost down
+	 * and each goes to the partition with the least cost so far.
+	 * The assignment only depends on the costs, so every map task computes the same one.
+	 * @param costs Cost of each key.
+	 * @param numPartitions Number of partitions.
+	 * @param isolateHeavyKeys If true, keys that cost more than a partition's share of the total get a partition of their own.
+	 * The last partition is always left for the other keys.
+	 * @return Partition of each key.
+	 */
+	public static int[] assignPartitions(final long[] costs, int numPartitions, boolean isolateHeavyKeys) {
+		Integer[] keys = new Integer[costs.length];
+		long total = 0;
+		for(int i=0; i<keys.length; i++) {
+			keys[i] = i;
+			total += costs[i];
+		}
+		Arrays.sort(keys, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int cmp = Long.compare(costs[b], costs[a]);
+				return cmp != 0 ? cmp : Integer.compare(a, b);
+			}
+		});
+
+		int[] partitions = new int[costs.length];
+		int next = 0;
+
+		//Dedicated partitions for the heavy keys
+		if(isolateHeavyKeys) {
+			long share = total / numPartitions;
+			while(next < keys.length && next < numPartitions-1 && costs[keys[next]] > share) {
+				partitions[keys[next]] = next;
+				next++;
+			}
+		}
+
+		//Pack the other keys onto the least loaded partition, partitions are {cost, partition}
+		PriorityQueue<long[]> loads = new PriorityQueue<long[]>(numPartitions, new Comparator<long[]>() {
+			public int compare(long[] a, long[] b) {
+				int cmp = Long.compare(a[0], b[0]);
+				return cmp != 0 ? cmp : Long.compare(a[1], b[1]);
+			}
+		});
+		for(int p=next; p<numPartitions; p++) {
+			loads.add(new long[] {0, p});
+		}
+		for(int i=next; i<keys.length; i++) {
+			long[] load = loads.poll();
+			partitions[keys[i]] = (int)load[1];
+			load[0] += costs[keys[i]];
+			loads.add(load);
+		}
+		return partitions;
+	}
+}
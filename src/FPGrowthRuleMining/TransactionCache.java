@@ -0,0 +1,233 @@
+//Cache of the transactions of an input, encoded as the ids of their frequent items in a compressed SequenceFile
+//The first run writes it while it finds the frequent itemsets, later runs on the same input with an equal or higher support
+//read it instead of counting the items and parsing the input again
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Scanner;
+
+public class TransactionCache {
+	//Named output of the frequent itemset generation, which FileInputFormat skips as a hidden directory of the itemsets
+	public static final String TRANSACTIONS_OUTPUT = "transactions";
+	public static final String TRANSACTIONS_PATH = "_transactions/part";
+	//Marks a cache that was written completely
+	private static final String COMMITTED = "_COMMITTED";
+
+	//Variables
+	private Configuration conf;
+	private FileSystem fs;
+	private Path cacheDir;
+	private boolean reused;
+
+	//Constructors
+	/**
+	 * Opens the cache in a directory.
+	 * @param conf Hadoop configuration variable being used
+	 * @param cacheDir Directory of the cache.
+	 * @throws IOException
+	 */
+	public TransactionCache(Configuration conf, Path cacheDir) throws IOException {
+		this.conf = conf;
+		this.fs = cacheDir.getFileSystem(conf);
+		this.cacheDir = cacheDir;
+		this.reused = false;
+	}
+
+	//Methods
+	/**
+	 * Reads the dictionary of the cached transactions if they can be used for a run.
+	 * They can be used if they were written from the same input with the same offset and a support that is not higher.
+	 * @param input Input directory of the run.
+	 * @param offset Number of leading fields of each line that are skipped before the items of the transaction.
+	 * @param minSupport Minimum support level of the run.
+	 * @return Dictionary of the frequent items at the support of the run, null if the cache can not be used.
+	 * @throws IOException
+	 */
+	public ItemDictionary readDictionary(String input, int offset, int minSupport) throws IOException {
+		Path source = new Path(this.cacheDir, "Source");
+		if(!this.fs.exists(new Path(this.cacheDir, COMMITTED)) || !this.fs.exists(source)) {
+			return null;
+		}
+		List<String> properties = readLines(source);
+		int cachedSupport = Integer.parseInt(properties.remove(properties.size()-1));
+		if(cachedSupport > minSupport || !properties.equals(describe(input, offset))) {
+			return null;
+		}
+
+		//Items are ranked by support, so the items of a higher support are the first ones of the cached dictionary
+		ItemDictionary dictionary = ItemDictionary.readTable(this.conf, new Path(this.cacheDir, "ItemTable"));
+		this.reused = true;
+		return cachedSupport == minSupport ? dictionary : dictionary.truncate(minSupport);
+	}
+
+	/**
+	 * Returns whether the last call to readDictionary found cached transactions that can be used.
+	 * @return true if the run reads the cached transactions, false if it writes them.
+	 */
+	public boolean isReused() {
+		return this.reused;
+	}
+
+	/**
+	 * Sets a frequent itemset generation job to read the cached transactions instead of the input.
+	 * @param job Job that finds the frequent itemsets.
+	 * @throws IOException
+	 */
+	public void addInput(Job job) throws IOException {
+		job.setInputFormatClass(SequenceFileInputFormat.class);
+		job.setMapperClass(EncodedTransactionMapper.class);
+		FileInputFormat.addInputPath(job, new Path(this.cacheDir, "Transactions"));
+	}
+
+	/**
+	 * Sets a frequent itemset generation job to write the ordered transactions it reads to the named output.
+	 * @param job Job that finds the frequent itemsets.
+	 */
+	public static void addOutput(Job job) {
+		job.getConfiguration().setBoolean("writeTransactionCache", true);
+		MultipleOutputs.addNamedOutput(job, TRANSACTIONS_OUTPUT, TransactionsOutputFormat.class, NullWritable.class, ItemsetWritable.class);
+	}
+
+	/**
+	 * Moves the transactions that a frequent itemset generation job wrote into the cache, replacing what was cached before.
+	 * @param jobOutput Output directory of the job.
+	 * @param itemTable Item table of the dictionary the transactions were encoded with.
+	 * @param input Input directory of the run.
+	 * @param offset Number of leading fields of each line that are skipped before the items of the transaction.
+	 * @param minSupport Minimum support level of the run.
+	 * @throws IOException If the transactions could not be moved.
+	 */
+	public void commit(Path jobOutput, Path itemTable, String input, int offset, int minSupport) throws IOException {
+		this.fs.delete(this.cacheDir, true);
+		this.fs.mkdirs(this.cacheDir);
+		Path transactions = new Path(jobOutput, TRANSACTIONS_PATH).getParent();
+		//Every transaction can have been infrequent, then no file was written
+		if(this.fs.exists(transactions)) {
+			if(!this.fs.rename(transactions, new Path(this.cacheDir, "Transactions"))) {
+				throw new IOException("An error occured while moving the transactions into the cache.");
+			}
+		}
+		else {
+			this.fs.mkdirs(new Path(this.cacheDir, "Transactions"));
+		}
+		FileUtil.copy(itemTable.getFileSystem(this.conf), itemTable, this.fs, new Path(this.cacheDir, "ItemTable"), false, this.conf);
+
+		List<String> properties = describe(input, offset);
+		properties.add(""+minSupport);
+		writeLines(new Path(this.cacheDir, "Source"), properties);
+		this.fs.create(new Path(this.cacheDir, COMMITTED), true).close();
+	}
+
+	/**
+	 * Describes an input, so that a cache of different or changed input files is not used.
+	 * @param input Input directory.
+	 * @param offset Number of leading fields of each line that are skipped before the items of the transaction.
+	 * @return The qualified input directory, the offset, the number and total length of the input files,
+	 * and the path and modification time of each file, since a file can be rewritten with the same length.
+	 * @throws IOException
+	 */
+	private List<String> describe(String input, int offset) throws IOException {
+		Path inputPath = new Path(input);
+		FileSystem inputFs = inputPath.getFileSystem(this.conf);
+		ContentSummary summary = inputFs.getContentSummary(inputPath);
+		List<String> properties = new ArrayList<String>();
+		properties.add(inputFs.makeQualified(inputPath).toString());
+		properties.add(""+offset);
+		properties.add(""+summary.getFileCount());
+		properties.add(""+summary.getLength());
+
+		//Files are listed in no particular order
+		List<String> files = new ArrayList<String>();
+		RemoteIterator<LocatedFileStatus> it = inputFs.listFiles(inputPath, true);
+		while(it.hasNext()) {
+			LocatedFileStatus file = it.next();
+			files.add(file.getPath().toString()+"\t"+file.getModificationTime());
+		}
+		Collections.sort(files);
+		properties.addAll(files);
+		return properties;
+	}
+
+	private List<String> readLines(Path path) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		Scanner scLines = new Scanner(this.fs.open(path), "UTF-8");
+		while(scLines.hasNextLine()) {
+			lines.add(scLines.nextLine());
+		}
+		scLines.close();
+		return lines;
+	}
+
+	private void writeLines(Path path, List<String> lines) throws IOException {
+		FSDataOutputStream out = this.fs.create(path, true);
+		for(String line : lines) {
+			out.write((line+"\n").getBytes(StandardCharsets.UTF_8));
+		}
+		out.close();
+	}
+
+	/**
+	 * Output format of the cached transactions, a block compressed SequenceFile.
+	 * A named output gets its own copy of the configuration, so the other outputs of the job are not compressed.
+	 */
+	public static class TransactionsOutputFormat extends SequenceFileOutputFormat<NullWritable,ItemsetWritable> {
+		public RecordWriter<NullWritable,ItemsetWritable> getRecordWriter(TaskAttemptContext context)
+		throws IOException, InterruptedException
+		{
+			context.getConfiguration().setBoolean(FileOutputFormat.COMPRESS, true);
+			context.getConfiguration().set(FileOutputFormat.COMPRESS_TYPE, "BLOCK");
+			return super.getRecordWriter(context);
+		}
+	}
+
+	/**
+	 * Mapper that writes the paths of the cached transactions.
+	 * Items that are not frequent at the support of this run have the largest ids, so they are cut from the end.
+	 */
+	public static class EncodedTransactionMapper
+	extends FPGrowthMain.PathsMapper<NullWritable,ItemsetWritable>
+	{
+		//Variables
+		private int numItems;
+
+		public void setup(Context context) throws IOException {
+			super.setup(context);
+			numItems = ItemDictionary.load(context.getConfiguration()).size();
+		}
+
+		public void map(NullWritable key, ItemsetWritable transaction, Context context)
+		throws IOException, InterruptedException
+		{
+			int[] orderedItemset = transaction.getItems();
+			int length = transaction.size();
+			while(length > 0 && orderedItemset[length-1] >= numItems) {
+				length--;
+			}
+			writePaths(orderedItemset, length, context);
+		}
+	}
+}
@@ -0,0 +1,171 @@
+//Splits lines of the dataset into items directly on their UTF-8 bytes, without a Scanner or a String per item
+//A tokenizer is reset for every line and reused, so reading a transaction does not allocate
+
+package FPGrowthRuleMining;
+
+import org.apache.hadoop.io.Text;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+
+public class TransactionTokenizer {
+	//Variables
+	private byte[] bytes;
+	private int end;
+	private int position;
+	private int tokenStart;
+	private int tokenLength;
+	//Ids of the frequent items of the last encoded line
+	private int[] encoded;
+
+	//Constructors
+	public TransactionTokenizer() {
+		this.bytes = new byte[0];
+		this.encoded = new int[16];
+	}
+
+	//Methods
+	/**
+	 * Starts reading a line and skips its leading fields.
+	 * @param line Line of the dataset, fields separated by whitespace.
+	 * @param offset Number of leading fields that are skipped before the items.
+	 */
+	public void reset(Text line, int offset) {
+		reset(line.getBytes(), 0, line.getLength(), offset);
+	}
+
+	/**
+	 * Starts reading a line and skips its leading fields.
+	 * @param bytes Array holding the UTF-8 bytes of the line.
+	 * @param start Start of the line in the array.
+	 * @param length Number of bytes of the line.
+	 * @param offset Number of leading fields that are skipped before the items.
+	 */
+	public void reset(byte[] bytes, int start, int length, int offset) {
+		this.bytes = bytes;
+		this.position = start;
+		this.end = start + length;
+		this.tokenStart = start;
+		this.tokenLength = 0;
+		//Skip data
+		int skipped = 0;
+		while(skipped < offset && next()) {
+			skipped++;
+		}
+	}
+
+	/**
+	 * Moves to the next item of the line.
+	 * @return true if there is another item, false if the line has no more items.
+	 */
+	public boolean next() {
+		int i = this.position;
+		int whitespace;
+		while(i < this.end && (whitespace = whitespaceLength(i)) > 0) {
+			i += whitespace;
+		}
+		if(i == this.end) {
+			this.position = i;
+			this.tokenLength = 0;
+			return false;
+		}
+		this.tokenStart = i;
+		while(i < this.end && whitespaceLength(i) == 0) {
+			i++;
+		}
+		this.tokenLength = i - this.tokenStart;
+		this.position = i;
+		return true;
+	}
+
+	/**
+	 * Returns the array holding the current item, which is the array of the line.
+	 * @return Array of UTF-8 bytes.
+	 */
+	public byte[] getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Returns the start of the current item in the array.
+	 * @return Start of the item.
+	 */
+	public int getStart() {
+		return this.tokenStart;
+	}
+
+	/**
+	 * Returns the number of bytes of the current item.
+	 * @return Length of the item.
+	 */
+	public int getLength() {
+		return this.tokenLength;
+	}
+
+	/**
+	 * Returns the current item as a string. Only needed for items that are kept, since it allocates.
+	 * @return The item.
+	 */
+	public String getItem() {
+		return new String(this.bytes, this.tokenStart, this.tokenLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Encodes the remaining items of the line as the sorted ids of its frequent items, like ItemDictionary.encode.
+	 * Items are looked up by their bytes, so no string is created for them.
+	 * @param dictionary Dictionary of the frequent items.
+	 * @return Number of ids, which are the first ones of getEncoded().
+	 */
+	public int encode(ItemDictionary dictionary) {
+		int size = 0;
+		while(next()) {
+			int id = dictionary.getId(this.bytes, this.tokenStart, this.tokenLength);
+			if(id != -1) {
+				if(size == this.encoded.length) {
+					this.encoded = Arrays.copyOf(this.encoded, size*2);
+				}
+				this.encoded[size++] = id;
+			}
+		}
+		Arrays.sort(this.encoded, 0, size);
+
+		//Remove duplicates
+		int unique = 0;
+		for(int i=0; i<size; i++) {
+			if(unique == 0 || this.encoded[unique-1] != this.encoded[i]) {
+				this.encoded[unique++] = this.encoded[i];
+			}
+		}
+		return unique;
+	}
+
+	/**
+	 * Returns the ids of the last encoded line. The array is reused by the next line.
+	 * @return Array whose first encode() ids are the line's ordered itemset.
+	 */
+	public int[] getEncoded() {
+		return this.encoded;
+	}
+
+	/**
+	 * Determines if the character at a position of the line is whitespace the way Scanner splits lines by default,
+	 * which is Character.isWhitespace.
+	 * Whitespace outside ASCII (U+1680, U+2000 to U+205F and U+3000) is encoded in three bytes
+	 * that start with 0xE1 to 0xE3, so only those characters are decoded.
+	 * Bytes inside a multi-byte character are never taken for the start of one, since they are 0x80 to 0xBF.
+	 * @param i Position in the array, before the end of the line.
+	 * @return Number of bytes of the whitespace character, 0 if the character is not whitespace.
+	 */
+	private int whitespaceLength(int i) {
+		int b = this.bytes[i] & 0xFF;
+		if(b < 0x80) {
+			return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F) ? 1 : 0;
+		}
+		if(b < 0xE1 || b > 0xE3 || i+2 >= this.end || (this.bytes[i+1] & 0xC0) != 0x80 || (this.bytes[i+2] & 0xC0) != 0x80) {
+			return 0;
+		}
+		int codePoint = ((b & 0x0F) << 12) | ((this.bytes[i+1] & 0x3F) << 6) | (this.bytes[i+2] & 0x3F);
+		return Character.isWhitespace(codePoint) ? 3 : 0;
+	}
+}